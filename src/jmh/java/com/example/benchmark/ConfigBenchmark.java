@@ -0,0 +1,32 @@
+package com.example.benchmark;
+
+import com.example.config.ConfigReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Config lookups that run on every UiActions construction and every new driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigBenchmark {
+
+    @Benchmark
+    public long explicitWaitDuration() {
+        return ConfigReader.getExplicitWaitDuration();
+    }
+
+    @Benchmark
+    public List<String> browserOptions() {
+        return ConfigReader.getBrowserOptions("chrome");
+    }
+
+    @Benchmark
+    public String reportDirectory() {
+        return ConfigReader.getReportDirectory();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * An in-memory WebDriver whose page always has one visible, enabled element per locator, so the
+ * benchmarks measure the framework's own overhead rather than a browser's.
+ */
+final class FakeBrowser {
+
+    private FakeBrowser() {
+    }
+
+    static WebDriver driver() {
+        WebElement element = (WebElement) Proxy.newProxyInstance(FakeBrowser.class.getClassLoader(),
+                new Class<?>[] {WebElement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isDisplayed":
+                        case "isEnabled":
+                            return Boolean.TRUE;
+                        case "isSelected":
+                            return Boolean.FALSE;
+                        case "getText":
+                        case "getAttribute":
+                        case "getCssValue":
+                            return "value";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        return (WebDriver) Proxy.newProxyInstance(FakeBrowser.class.getClassLoader(),
+                new Class<?>[] {WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findElement":
+                            return element;
+                        case "findElements":
+                            return List.of(element);
+                        case "executeScript":
+                            return "complete";
+                        case "getWindowHandle":
+                            return "window-1";
+                        case "getWindowHandles":
+                            return Set.of("window-1");
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.benchmark;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.example.utils.ReportLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of reporting finished scenarios from several threads at once: the streaming
+ * {@link ReportLog} against an in-memory ExtentReports model, as chosen by {@code report.mode}.
+ * Change the thread count with {@code -t}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ReportLogBenchmark {
+    private Path directory;
+    private ReportLog log;
+    private ExtentReports extent;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("report-bench");
+        log = ReportLog.create(directory.resolve("extent-report.jsonl"));
+        extent = new ExtentReports();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        log.close();
+        Files.deleteIfExists(log.getFile());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void streamingLog() {
+        ReportLog.Entry entry = new ReportLog.Entry("Scenario");
+        entry.log(Status.INFO, "Starting scenario: Scenario");
+        entry.log(Status.PASS, "Scenario passed");
+        entry.end();
+        log.append(entry);
+    }
+
+    @Benchmark
+    public ExtentTest inMemoryModel() {
+        ExtentTest test = extent.createTest("Scenario");
+        test.log(Status.INFO, "Starting scenario: Scenario");
+        test.log(Status.PASS, "Scenario passed");
+        return test;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.benchmark;
+
+import com.example.utils.ScreenshotWriter;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Encoding and writing one failure screenshot with the {@link ScreenshotWriter}, for each
+ * combination of {@code screenshot.format} and {@code screenshot.scale}. Each invocation starts a
+ * writer, submits one 1280x800 screenshot and waits for it to be written.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ScreenshotBenchmark {
+    @Param({"png", "jpg"})
+    public String format;
+
+    @Param({"1.0", "0.5"})
+    public double scale;
+
+    private Path directory;
+    private byte[] screenshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("screenshot-bench");
+        BufferedImage image = new BufferedImage(1280, 800, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(42);
+        // Blocks of colour and text, so the image compresses roughly like a web page.
+        for (int i = 0; i < 200; i++) {
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillRect(random.nextInt(1280), random.nextInt(800), random.nextInt(300), random.nextInt(100));
+            graphics.setColor(Color.BLACK);
+            graphics.drawString("Lorem ipsum dolor sit amet " + i, random.nextInt(1200), random.nextInt(800));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        screenshot = png.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Path writeScreenshot() {
+        try (ScreenshotWriter writer = new ScreenshotWriter(directory, 1, 1, scale, format, 0.8f)) {
+            return writer.submit("Scenario", screenshot);
+        }
+    }
+}
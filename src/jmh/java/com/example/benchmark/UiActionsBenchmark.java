@@ -0,0 +1,59 @@
+package com.example.benchmark;
+
+import com.example.actions.UiActions;
+import com.example.metrics.CommandMetrics;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openqa.selenium.By;
+
+/**
+ * The cost UiActions adds around WebDriver commands (waits, timing, metrics), measured against a
+ * {@link FakeBrowser} that answers every command instantly. {@code instrumented} wraps the driver
+ * the way DriverFactory does when metrics or round-trip tracing are on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+@State(Scope.Thread)
+public class UiActionsBenchmark {
+    private static final By SEARCH_BOX = By.name("q");
+    private static final By SEARCH_BUTTON = By.name("btnK");
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private UiActions ui;
+
+    @Setup
+    public void setUp() {
+        ui = new UiActions(instrumented ? CommandMetrics.instrument(FakeBrowser.driver()) : FakeBrowser.driver());
+    }
+
+    @Benchmark
+    public void click() {
+        ui.click(SEARCH_BUTTON);
+    }
+
+    @Benchmark
+    public void fill() {
+        ui.fill(SEARCH_BOX, "selenium automation");
+    }
+
+    @Benchmark
+    public String getText() {
+        return ui.getText(SEARCH_BOX);
+    }
+
+    @Benchmark
+    public boolean isDisplayed() {
+        return ui.isDisplayed(SEARCH_BOX);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.actions;
+
+import com.example.config.ConfigReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The API counterpart of {@link UiActions}: a helper for HTTP calls against the service under test.
+ * All instances share one HTTP/2-capable client, so connections are pooled across scenarios and
+ * threads, and every request can be sent asynchronously.
+ */
+public class ApiActions {
+    // One client for the whole run: it owns the connection pool.
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final String baseUrl;
+    private final Duration timeout;
+    private final Map<String, String> defaultHeaders;
+
+    /**
+     * Constructs a new ApiActions helper.
+     *
+     * @param baseUrl the URL that request paths are resolved against
+     */
+    public ApiActions(String baseUrl) {
+        this(baseUrl, Map.of("Accept", "application/json"));
+    }
+
+    /**
+     * Constructs a new ApiActions helper.
+     *
+     * @param baseUrl the URL that request paths are resolved against
+     * @param defaultHeaders headers sent with every request
+     */
+    public ApiActions(String baseUrl, Map<String, String> defaultHeaders) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = Duration.ofSeconds(ConfigReader.getApiTimeout());
+        this.defaultHeaders = defaultHeaders;
+    }
+
+    /**
+     * Sends a GET request and waits for the response.
+     *
+     * @param path the path relative to the base URL
+     * @return the response
+     */
+    public ApiResponse get(String path) {
+        return send("GET", path, null);
+    }
+
+    /**
+     * Sends a request and waits for the response.
+     *
+     * @param method the HTTP method
+     * @param path the path relative to the base URL
+     * @param jsonBody the JSON request body, or null for none
+     * @return the response
+     */
+    public ApiResponse send(String method, String path, String jsonBody) {
+        try {
+            return sendAsync(method, path, jsonBody).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a GET request without blocking.
+     *
+     * @param path the path relative to the base URL
+     * @return completes with the response
+     */
+    public CompletableFuture<ApiResponse> getAsync(String path) {
+        return sendAsync("GET", path, null);
+    }
+
+    /**
+     * Sends a request without blocking, so several calls can be in flight at once.
+     *
+     * @param method the HTTP method
+     * @param path the path relative to the base URL
+     * @param jsonBody the JSON request body, or null for none
+     * @return completes with the response
+     */
+    public CompletableFuture<ApiResponse> sendAsync(String method, String path, String jsonBody) {
+        long start = System.nanoTime();
+        return CLIENT.sendAsync(request(method, path, jsonBody), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> new ApiResponse(
+                        response.statusCode(),
+                        response.headers(),
+                        response.body(),
+                        Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    /**
+     * Sends a GET request and returns as soon as the headers arrive, leaving the body on the wire.
+     * Use this for large payloads; close the response when done.
+     *
+     * @param path the path relative to the base URL
+     * @return the response with a streaming body
+     */
+    public ApiResponse.Streamed stream(String path) {
+        try {
+            HttpResponse<InputStream> response = CLIENT.send(
+                    request("GET", path, null), HttpResponse.BodyHandlers.ofInputStream());
+            return new ApiResponse.Streamed(response.statusCode(), response.headers(), response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + path, e);
+        }
+    }
+
+    private HttpRequest request(String method, String path, String jsonBody) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .method(method, jsonBody == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(jsonBody));
+        defaultHeaders.forEach(builder::header);
+        if (jsonBody != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.actions;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The response to an {@link ApiActions} request with its body held in memory.
+ * Use {@link ApiActions#stream} for bodies too large to keep around.
+ */
+public class ApiResponse {
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final String body;
+    private final Duration elapsed;
+
+    ApiResponse(int statusCode, HttpHeaders headers, String body, Duration elapsed) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.elapsed = elapsed;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @param name the header name, case-insensitive
+     * @return the first value of the header, if present
+     */
+    public Optional<String> getHeader(String name) {
+        return headers.firstValue(name);
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return the time from sending the request until the whole body was received
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Reads one value from the JSON body without building the whole document.
+     *
+     * @param path the path of the value, e.g. {@code data.users[0].id}
+     * @return the value, or null if the path does not exist
+     */
+    public Object getJsonValue(String path) {
+        return JsonPaths.find(new StringReader(body), path);
+    }
+
+    /**
+     * A response whose body is still on the wire. Close it when done.
+     */
+    public static class Streamed implements AutoCloseable {
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final InputStream body;
+
+        Streamed(int statusCode, HttpHeaders headers, InputStream body) {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Optional<String> getHeader(String name) {
+            return headers.firstValue(name);
+        }
+
+        /**
+         * @return the body stream; it can only be consumed once
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        /**
+         * Streams through the JSON body until the value at the path is found. Consumes the body.
+         *
+         * @param path the path of the value, e.g. {@code data.users[0].id}
+         * @return the value, or null if the path does not exist
+         */
+        public Object getJsonValue(String path) {
+            return JsonPaths.find(new InputStreamReader(body, StandardCharsets.UTF_8), path);
+        }
+
+        @Override
+        public void close() {
+            try {
+                body.close();
+            } catch (Exception e) {
+                // Closing only releases the connection back to the pool.
+            }
+        }
+    }
+}
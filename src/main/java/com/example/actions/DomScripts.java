@@ -0,0 +1,138 @@
+package com.example.actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.openqa.selenium.By;
+
+/**
+ * JavaScript run in the page by {@link UiActions}: batch reads and writes that resolve many
+ * locators in one {@code executeScript} call, and event-driven waits.
+ */
+final class DomScripts {
+
+    /**
+     * Shared helpers: locator resolution for the W3C strategies and a visibility check.
+     */
+    private static final String HELPERS =
+            "function find(l) {"
+            + "  var using = l[0], value = l[1];"
+            + "  switch (using) {"
+            + "    case 'css selector': return document.querySelector(value);"
+            + "    case 'xpath': return document.evaluate(value, document, null,"
+            + "        XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+            + "    case 'tag name': return document.getElementsByTagName(value)[0] || null;"
+            + "    case 'link text': case 'partial link text':"
+            + "      var links = document.getElementsByTagName('a');"
+            + "      for (var i = 0; i < links.length; i++) {"
+            + "        var t = links[i].innerText.trim();"
+            + "        if (using === 'link text' ? t === value : t.indexOf(value) >= 0) return links[i];"
+            + "      }"
+            + "      return null;"
+            + "  }"
+            + "  return null;"
+            + "}"
+            + "function visible(el) {"
+            + "  var style = window.getComputedStyle(el);"
+            + "  return style.visibility !== 'hidden' && style.display !== 'none'"
+            + "      && (el.offsetWidth > 0 || el.offsetHeight > 0 || el.getClientRects().length > 0);"
+            + "}";
+
+    /**
+     * Arguments: locators, attribute names. Returns null until every locator resolves, then one
+     * state object per locator.
+     */
+    static final String READ = HELPERS
+            + "var locators = arguments[0], names = arguments[1], elements = [];"
+            + "for (var i = 0; i < locators.length; i++) {"
+            + "  var el = find(locators[i]);"
+            + "  if (!el) return null;"
+            + "  elements.push(el);"
+            + "}"
+            + "return elements.map(function (el) {"
+            + "  var shown = visible(el), attrs = {};"
+            + "  names.forEach(function (n) {"
+            + "    var p = el[n];"
+            + "    var v = (p !== undefined && p !== null && typeof p !== 'object' && typeof p !== 'function')"
+            + "        ? p : el.getAttribute(n);"
+            + "    if (v !== null && v !== undefined) attrs[n] = String(v);"
+            + "  });"
+            + "  return { text: shown ? el.innerText.trim() : '', displayed: shown, enabled: !el.disabled,"
+            + "      selected: !!(el.checked || el.selected), attributes: attrs };"
+            + "});";
+
+    /**
+     * Arguments: locators, values. Returns false until every locator resolves to a visible element,
+     * then sets each value through the native setter (so framework bindings notice) and fires
+     * input and change events.
+     */
+    static final String FILL = HELPERS
+            + "var locators = arguments[0], values = arguments[1], elements = [];"
+            + "for (var i = 0; i < locators.length; i++) {"
+            + "  var el = find(locators[i]);"
+            + "  if (!el || !visible(el)) return false;"
+            + "  elements.push(el);"
+            + "}"
+            + "elements.forEach(function (el, i) {"
+            + "  var proto = Object.getPrototypeOf(el);"
+            + "  var setter = Object.getOwnPropertyDescriptor(proto, 'value');"
+            + "  if (setter && setter.set) { setter.set.call(el, values[i]); } else { el.value = values[i]; }"
+            + "  el.dispatchEvent(new Event('input', { bubbles: true }));"
+            + "  el.dispatchEvent(new Event('change', { bubbles: true }));"
+            + "});"
+            + "return true;";
+
+    /**
+     * A BiDi function declaration taking {@code (using, value, condition, timeoutMillis)}. It returns
+     * a promise that resolves to true as soon as the condition holds, re-checking on every DOM
+     * mutation (plus a light in-page tick for CSS-driven changes), or to false on timeout.
+     */
+    static final String AWAIT_CONDITION =
+            "function (using, value, condition, timeoutMillis) {"
+            + HELPERS
+            + "  function met() {"
+            + "    var el = find([using, value]);"
+            + "    switch (condition) {"
+            + "      case 'present': return !!el;"
+            + "      case 'visible': return !!el && visible(el);"
+            + "      case 'clickable': return !!el && visible(el) && !el.disabled;"
+            + "      case 'invisible': return !el || !visible(el);"
+            + "      case 'detached': return !el;"
+            + "    }"
+            + "    return false;"
+            + "  }"
+            + "  return new Promise(function (resolve) {"
+            + "    if (met()) { resolve(true); return; }"
+            + "    var observer, timer, tick;"
+            + "    function done(result) {"
+            + "      observer.disconnect(); clearTimeout(timer); clearInterval(tick); resolve(result);"
+            + "    }"
+            + "    function check() { if (met()) done(true); }"
+            + "    observer = new MutationObserver(check);"
+            + "    observer.observe(document, { childList: true, subtree: true, attributes: true,"
+            + "        characterData: true });"
+            + "    tick = setInterval(check, 100);"
+            + "    timer = setTimeout(function () { done(false); }, timeoutMillis);"
+            + "  });"
+            + "}";
+
+    private DomScripts() {
+    }
+
+    /**
+     * Converts locators to the {@code [using, value]} pairs understood by the scripts.
+     *
+     * @throws IllegalArgumentException if a locator does not use a W3C locator strategy
+     */
+    static List<List<String>> toSpecs(Collection<By> locators) {
+        List<List<String>> specs = new ArrayList<>();
+        for (By locator : locators) {
+            if (!(locator instanceof By.Remotable)) {
+                throw new IllegalArgumentException("Locator cannot be resolved in a batch: " + locator);
+            }
+            By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+            specs.add(List.of(parameters.using(), String.valueOf(parameters.value())));
+        }
+        return specs;
+    }
+}
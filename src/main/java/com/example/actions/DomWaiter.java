@@ -0,0 +1,127 @@
+package com.example.actions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.module.Script;
+import org.openqa.selenium.bidi.script.EvaluateResult;
+import org.openqa.selenium.bidi.script.EvaluateResultSuccess;
+import org.openqa.selenium.bidi.script.LocalValue;
+
+/**
+ * Waits for element conditions by letting the page report them over WebDriver BiDi: a
+ * MutationObserver-backed promise resolves as soon as the DOM satisfies the condition, so the
+ * wait costs one BiDi call instead of one HTTP call per polling interval.
+ * <p>
+ * When BiDi is not available, the page is inside a frame, or the call fails (for example because
+ * the page navigated), {@link Outcome#UNSUPPORTED} tells the caller to fall back to polling.
+ */
+class DomWaiter {
+
+    /**
+     * Element conditions understood by {@link DomScripts#AWAIT_CONDITION}.
+     */
+    enum Condition {
+        PRESENT("present"),
+        VISIBLE("visible"),
+        CLICKABLE("clickable"),
+        INVISIBLE("invisible"),
+        DETACHED("detached");
+
+        private final String script;
+
+        Condition(String script) {
+            this.script = script;
+        }
+
+        /**
+         * @return true for the conditions that wait for an element to go away
+         */
+        boolean isNegative() {
+            return this == INVISIBLE || this == DETACHED;
+        }
+    }
+
+    enum Outcome {
+        MET,
+        TIMED_OUT,
+        UNSUPPORTED
+    }
+
+    private final WebDriver driver;
+    private final boolean enabled;
+    private Script script;
+    private String contextId;
+    private boolean inFrame;
+
+    DomWaiter(WebDriver driver, boolean enabled) {
+        this.driver = driver;
+        this.enabled = enabled && driver instanceof HasBiDi
+                && ((HasBiDi) driver).maybeGetBiDi().isPresent();
+    }
+
+    /**
+     * Blocks until the condition holds for the element, or the timeout elapses.
+     *
+     * @param locator the locator of the element
+     * @param condition the condition to wait for
+     * @param timeout the maximum time to wait
+     * @return whether the condition was met, timed out, or could not be awaited over BiDi
+     */
+    Outcome await(By locator, Condition condition, Duration timeout) {
+        if (!enabled || inFrame || !(locator instanceof By.Remotable)) {
+            return Outcome.UNSUPPORTED;
+        }
+        try {
+            By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+            List<LocalValue> arguments = List.of(
+                    LocalValue.stringValue(parameters.using()),
+                    LocalValue.stringValue(String.valueOf(parameters.value())),
+                    LocalValue.stringValue(condition.script),
+                    LocalValue.numberValue(timeout.toMillis()));
+            EvaluateResult result = script().callFunctionInBrowsingContext(
+                    contextId(), DomScripts.AWAIT_CONDITION, true,
+                    Optional.of(arguments), Optional.empty(), Optional.empty());
+            if (result.getResultType() != EvaluateResult.Type.SUCCESS) {
+                return Outcome.UNSUPPORTED;
+            }
+            Object value = ((EvaluateResultSuccess) result).getResult().getValue().orElse(false);
+            return Boolean.TRUE.equals(value) ? Outcome.MET : Outcome.TIMED_OUT;
+        } catch (RuntimeException e) {
+            return Outcome.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Records that the driver switched to another window.
+     */
+    void onWindowSwitch() {
+        contextId = null;
+        inFrame = false;
+    }
+
+    /**
+     * Records whether the driver is focused on a frame rather than the top-level document.
+     */
+    void onFrameSwitch(boolean inFrame) {
+        this.inFrame = inFrame;
+    }
+
+    private Script script() {
+        if (script == null) {
+            script = new Script(driver);
+        }
+        return script;
+    }
+
+    private String contextId() {
+        // With BiDi enabled, window handles are the ids of the top-level browsing contexts.
+        if (contextId == null) {
+            contextId = driver.getWindowHandle();
+        }
+        return contextId;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.actions;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+/**
+ * The elements {@link UiActions} has resolved on the current page, so repeated actions on the same
+ * locator reuse the WebElement instead of looking it up again. Entries are keyed by locator within
+ * the current window and frame, and dropped when the page navigates or the driver switches window
+ * or frame. A cached element can still go stale when the page re-renders it; UiActions then clears
+ * the cache and retries the action once.
+ * <p>
+ * Like UiActions, a cache belongs to one scenario thread.
+ */
+class ElementCache {
+    private final boolean enabled;
+    private final Map<String, WebElement> elements = new HashMap<>();
+    private String window = "";
+    private String frame = "";
+
+    ElementCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cached element for the locator in the current window and frame, or null
+     */
+    WebElement get(By locator) {
+        return enabled ? elements.get(key(locator)) : null;
+    }
+
+    void put(By locator, WebElement element) {
+        if (enabled) {
+            elements.put(key(locator), element);
+        }
+    }
+
+    void evict(By locator) {
+        elements.remove(key(locator));
+    }
+
+    /**
+     * Drops every cached element, e.g. because the page navigated.
+     */
+    void clear() {
+        elements.clear();
+    }
+
+    /**
+     * Records that the driver switched to another window.
+     *
+     * @param handle the handle of the window now in focus
+     */
+    void onWindowSwitch(String handle) {
+        window = handle;
+        frame = "";
+        clear();
+    }
+
+    /**
+     * Records that the driver switched to a frame, or back to the top-level document.
+     *
+     * @param frame a description of the frame, or an empty string for the top-level document
+     */
+    void onFrameSwitch(String frame) {
+        this.frame = frame;
+        clear();
+    }
+
+    private String key(By locator) {
+        return window + "/" + frame + " " + locator;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.actions;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A snapshot of an element's state, read together with other elements in a single
+ * browser round trip by {@link UiActions#readAll}.
+ */
+public class ElementState {
+    private final String text;
+    private final boolean displayed;
+    private final boolean enabled;
+    private final boolean selected;
+    private final Map<String, String> attributes;
+
+    ElementState(String text, boolean displayed, boolean enabled, boolean selected,
+                 Map<String, String> attributes) {
+        this.text = text;
+        this.displayed = displayed;
+        this.enabled = enabled;
+        this.selected = selected;
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * @return the rendered text of the element, empty if it is not displayed
+     */
+    public String getText() {
+        return text;
+    }
+
+    public boolean isDisplayed() {
+        return displayed;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    /**
+     * Gets the value of an attribute that was requested in the batch read.
+     *
+     * @param name the name of the attribute
+     * @return the attribute value or empty string if not found
+     */
+    public String getAttribute(String name) {
+        return attributes.getOrDefault(name, "");
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return "ElementState{text='" + text + "', displayed=" + displayed + ", enabled=" + enabled
+                + ", selected=" + selected + ", attributes=" + attributes + "}";
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.actions;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+/**
+ * Looks up a single value in a JSON document while streaming through it, skipping everything that
+ * is not on the path, so large payloads are never materialized as a whole.
+ * <p>
+ * Paths are dot-separated property names with optional array indexes, e.g. {@code data.users[2].name}.
+ */
+final class JsonPaths {
+    private static final Json JSON = new Json();
+
+    private JsonPaths() {
+    }
+
+    /**
+     * Finds the value at the given path.
+     *
+     * @param reader the JSON document; it is consumed but not closed
+     * @param path the path of the value
+     * @return the value (a String, Number, Boolean, or a List/Map for composite values),
+     *         or null if the path does not exist or the value is null
+     */
+    static Object find(Reader reader, String path) {
+        JsonInput input = JSON.newInput(reader);
+        for (Object segment : parse(path)) {
+            if (segment instanceof Integer) {
+                if (!seekIndex(input, (Integer) segment)) {
+                    return null;
+                }
+            } else if (!seekProperty(input, (String) segment)) {
+                return null;
+            }
+        }
+        return input.read(Object.class);
+    }
+
+    private static boolean seekProperty(JsonInput input, String name) {
+        switch (input.peek()) {
+            case START_MAP:
+                input.beginObject();
+                while (input.hasNext()) {
+                    if (name.equals(input.nextName())) {
+                        return true;
+                    }
+                    input.skipValue();
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean seekIndex(JsonInput input, int index) {
+        switch (input.peek()) {
+            case START_COLLECTION:
+                input.beginArray();
+                for (int i = 0; input.hasNext(); i++) {
+                    if (i == index) {
+                        return true;
+                    }
+                    input.skipValue();
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Splits {@code a.b[1].c} into {@code ["a", "b", 1, "c"]}.
+     */
+    private static List<Object> parse(String path) {
+        List<Object> segments = new ArrayList<>();
+        for (String part : path.split("\\.")) {
+            int bracket = part.indexOf('[');
+            String name = bracket < 0 ? part : part.substring(0, bracket);
+            if (!name.isEmpty()) {
+                segments.add(name);
+            }
+            while (bracket >= 0) {
+                int close = part.indexOf(']', bracket);
+                segments.add(Integer.parseInt(part.substring(bracket + 1, close)));
+                bracket = part.indexOf('[', close);
+            }
+        }
+        return segments;
+    }
+}
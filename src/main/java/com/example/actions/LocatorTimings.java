@@ -0,0 +1,162 @@
+package com.example.actions;
+
+import com.example.config.ConfigReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.json.Json;
+
+/**
+ * How long elements took to reach a condition, per locator, kept across runs so {@link UiActions}
+ * can size its waits to what each element actually needs. Only the most recent samples of each
+ * locator are kept, so the timings follow the application as it changes. Timings are only kept
+ * with {@code wait.adaptive=true}.
+ */
+public class LocatorTimings {
+    private static final Json JSON = new Json();
+    private static final int MAX_SAMPLES = 100;
+    // Fewer samples than this say too little about the tail to shorten a wait.
+    private static final int MIN_SAMPLES = 5;
+    // Weight of the newest wait in the recent slowdown.
+    private static final double SLOWDOWN_SMOOTHING = 0.2;
+    private static volatile LocatorTimings instance;
+
+    private final Path file;
+    private final Map<String, Deque<Long>> samples = new ConcurrentHashMap<>();
+    private volatile double slowdown = 1.0;
+
+    private LocatorTimings(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the timings of this run, loaded from {@code wait.timings.file} on first use
+     */
+    static LocatorTimings get() {
+        if (instance == null) {
+            synchronized (LocatorTimings.class) {
+                if (instance == null) {
+                    instance = load(Paths.get(ConfigReader.getWaitTimingsFile()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LocatorTimings load(Path file) {
+        LocatorTimings timings = new LocatorTimings(file);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                Map<String, Object> raw = JSON.toType(reader, Json.MAP_TYPE);
+                raw.forEach((key, values) -> {
+                    Deque<Long> deque = new ArrayDeque<>();
+                    ((List<Number>) values).forEach(value -> deque.add(value.longValue()));
+                    timings.samples.put(key, deque);
+                });
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable locator timings " + file + ": " + e);
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Writes the timings back to {@code wait.timings.file}, if adaptive waits used them in this run.
+     */
+    public static void save() {
+        LocatorTimings timings = instance;
+        if (timings == null || !ConfigReader.isAdaptiveWait()) {
+            return;
+        }
+        Map<String, List<Long>> snapshot = new TreeMap<>();
+        timings.samples.forEach((key, deque) -> {
+            synchronized (deque) {
+                snapshot.put(key, new ArrayList<>(deque));
+            }
+        });
+        try {
+            if (timings.file.getParent() != null) {
+                Files.createDirectories(timings.file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(timings.file, StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(snapshot));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write locator timings " + timings.file, e);
+        }
+    }
+
+    /**
+     * How much longer waits currently take than the same locators usually need: a moving average
+     * of each successful wait for an element to appear divided by the median of its locator's
+     * earlier waits. Timeouts and checks that an element is gone are left out, as their duration is
+     * set by the timeout rather than by the browser. Around 1 when the
+     * browsers keep up; it grows when the machine is overloaded.
+     *
+     * @return the recent slowdown, or 1 if no timings were recorded in this run, as with
+     *         {@code wait.adaptive=false}
+     */
+    public static double getRecentSlowdown() {
+        LocatorTimings timings = instance;
+        return timings == null ? 1.0 : timings.slowdown;
+    }
+
+    /**
+     * Records how long a wait took.
+     *
+     * @param measuresSlowdown true if the wait saw an element appear, so its time counts toward the recent slowdown
+     */
+    void record(String key, Duration elapsed, boolean measuresSlowdown) {
+        Deque<Long> deque = samples.computeIfAbsent(key, k -> new ArrayDeque<>());
+        synchronized (deque) {
+            if (measuresSlowdown && deque.size() >= MIN_SAMPLES) {
+                List<Long> sorted = new ArrayList<>(deque);
+                Collections.sort(sorted);
+                // Waits under a millisecond are noise; do not let them turn into huge ratios.
+                double ratio = elapsed.toMillis() / (double) Math.max(1, sorted.get(sorted.size() / 2));
+                synchronized (this) {
+                    slowdown += SLOWDOWN_SMOOTHING * (ratio - slowdown);
+                }
+            }
+            deque.addLast(elapsed.toMillis());
+            while (deque.size() > MAX_SAMPLES) {
+                deque.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return the 99th percentile of the recorded waits, or null if there are too few samples
+     */
+    Duration p99(String key) {
+        Deque<Long> deque = samples.get(key);
+        if (deque == null) {
+            return null;
+        }
+        List<Long> sorted;
+        synchronized (deque) {
+            if (deque.size() < MIN_SAMPLES) {
+                return null;
+            }
+            sorted = new ArrayList<>(deque);
+        }
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(0.99 * sorted.size()) - 1;
+        return Duration.ofMillis(sorted.get(Math.max(0, index)));
+    }
+}
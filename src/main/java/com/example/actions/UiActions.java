@@ -1,6 +1,18 @@
 package com.example.actions;
 
 import com.example.config.ConfigReader;
+import com.example.driver.DriverFactory;
+import com.example.driver.NetworkMonitor;
+import com.example.metrics.CommandMetrics;
+import com.example.metrics.RoundTripTracer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.time.Duration;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
@@ -8,20 +20,46 @@ import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A helper class for common UI interactions that include built-in auto-wait functionality,
  * similar to what Playwright provides.
+ * The WebDriver is obtained lazily on the first interaction, so a scenario that never touches
+ * the browser never starts one. With {@code wait.strategy=bidi} element waits are event-driven
+ * over WebDriver BiDi and fall back to WebDriverWait polling when BiDi is unavailable.
+ * Checks that an element is not there ({@link #isNotDisplayed}, {@link #isAbsent}) use their own
+ * short timeout, and with {@code wait.adaptive=true} every wait is sized from how long the same
+ * locator took in previous runs. Every action is timed by {@link CommandMetrics}, with the time
+ * spent waiting kept apart from the time spent executing commands. With
+ * {@code element.cache.enabled=true} resolved elements are reused until the page or the
+ * window/frame changes (see {@link ElementCache}).
  */
 public class UiActions {
-    private final WebDriver driver;
-    private final WebDriverWait wait;
-    private final Actions actions;
+    // Chrome and Edge write to name.crdownload; Firefox to name.part next to an empty name.
+    private static final List<String> PARTIAL_DOWNLOAD_SUFFIXES = List.of(".crdownload", ".part");
+    private static final long DOWNLOAD_RESCAN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final Supplier<WebDriver> driverSupplier;
+    private WebDriver driver;
+    private WebDriverWait wait;
+    private Actions actions;
+    private DomWaiter domWaiter;
+    private ElementCache elementCache;
+    private Duration waitDuration;
     
     /**
      * Constructs a new UiActions helper.
@@ -29,11 +67,192 @@ public class UiActions {
      * @param driver the WebDriver instance to be used
      */
     public UiActions(WebDriver driver) {
-        this.driver = driver;
-        // Instantiate explicit wait duration from config properties
-        long waitDuration = ConfigReader.getExplicitWaitDuration();
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(waitDuration));
-        this.actions = new Actions(driver);
+        this(() -> driver);
+    }
+    
+    /**
+     * Constructs a new UiActions helper that only asks for a WebDriver when the first
+     * browser command is issued.
+     *
+     * @param driverSupplier supplies the WebDriver instance on first use
+     */
+    public UiActions(Supplier<WebDriver> driverSupplier) {
+        this.driverSupplier = driverSupplier;
+    }
+    
+    /**
+     * Returns the WebDriver, acquiring it and building the waits on first use.
+     */
+    private WebDriver driver() {
+        if (driver == null) {
+            driver = driverSupplier.get();
+            // Instantiate explicit wait duration from config properties
+            waitDuration = Duration.ofSeconds(ConfigReader.getExplicitWaitDuration());
+            wait = new WebDriverWait(driver, waitDuration);
+            actions = new Actions(driver);
+            domWaiter = new DomWaiter(driver, "bidi".equalsIgnoreCase(ConfigReader.getWaitStrategy()));
+            elementCache = new ElementCache(ConfigReader.isElementCacheEnabled());
+        }
+        return driver;
+    }
+    
+    private WebDriverWait explicitWait() {
+        driver();
+        return wait;
+    }
+    
+    private Actions actions() {
+        driver();
+        return actions;
+    }
+    
+    /**
+     * Runs a public action inside a {@link CommandMetrics} scope, so its duration and the WebDriver
+     * commands it issues are attributed to the action, the locator and the calling page. The
+     * {@link RoundTripTracer} counts the action against its locator. With the element cache on,
+     * an action on a locator that hits a stale cached element is retried once with freshly resolved
+     * elements; those actions start with the lookup and are safe to repeat, fills clearing the field
+     * before they type again. Actions without a locator resolve their elements in the page, if at
+     * all, and are never repeated, so a batch fill does not run twice.
+     */
+    @SuppressWarnings("try")
+    private <T> T timed(String action, By locator, Supplier<T> body) {
+        driver();
+        RoundTripTracer.recordAction(locator);
+        try (CommandMetrics.Scope scope = CommandMetrics.startAction(action, locator)) {
+            try {
+                return body.get();
+            } catch (StaleElementReferenceException e) {
+                if (!elementCache.isEnabled() || locator == null) {
+                    throw e;
+                }
+                // The page re-rendered the element since it was cached.
+                elementCache.clear();
+                return body.get();
+            }
+        }
+    }
+    
+    private void timedRun(String action, By locator, Runnable body) {
+        timed(action, locator, () -> {
+            body.run();
+            return null;
+        });
+    }
+    
+    // ===== Wait Methods =====
+    
+    private WebElement waitForVisible(By locator) {
+        return cached(locator, WebElement::isDisplayed, () -> waitFor(locator, DomWaiter.Condition.VISIBLE,
+                ExpectedConditions.visibilityOfElementLocated(locator), waitDuration()));
+    }
+    
+    private WebElement waitForClickable(By locator) {
+        return cached(locator, element -> element.isDisplayed() && element.isEnabled(),
+                () -> waitFor(locator, DomWaiter.Condition.CLICKABLE,
+                        ExpectedConditions.elementToBeClickable(locator), waitDuration()));
+    }
+    
+    private WebElement waitForPresent(By locator) {
+        // A cached element is present by definition; if it went stale, timed() retries the action.
+        return cached(locator, element -> true, () -> waitFor(locator, DomWaiter.Condition.PRESENT,
+                ExpectedConditions.presenceOfElementLocated(locator), waitDuration()));
+    }
+    
+    /**
+     * Returns the cached element for the locator if it still meets the condition, which costs one
+     * check instead of a lookup and a check. Otherwise resolves the element and caches it.
+     */
+    private WebElement cached(By locator, Predicate<WebElement> stillMet, Supplier<WebElement> resolve) {
+        WebElement element = elementCache.get(locator);
+        if (element != null) {
+            try {
+                if (stillMet.test(element)) {
+                    return element;
+                }
+            } catch (StaleElementReferenceException e) {
+                // Resolved again below.
+            }
+            elementCache.evict(locator);
+        }
+        element = resolve.get();
+        elementCache.put(locator, element);
+        return element;
+    }
+    
+    /**
+     * Waits for an element condition, first in the page (see {@link #awaitInPage}) and then with
+     * a WebDriverWait for whatever is left of the timeout. With {@code wait.adaptive=true} the timeout is sized from
+     * the {@link LocatorTimings} of earlier waits, and the time this one took is added to them.
+     *
+     * @param defaultTimeout the timeout when there are no timings to go by
+     */
+    private <T> T waitFor(By locator, DomWaiter.Condition condition, ExpectedCondition<T> expected,
+                          Duration defaultTimeout) {
+        String key = condition.name() + " " + locator;
+        Duration timeout = adaptiveTimeout(key, defaultTimeout);
+        long start = System.nanoTime();
+        boolean met = false;
+        CommandMetrics.beginWait();
+        try {
+            awaitInPage(locator, condition, timeout);
+            // One budget for both waits; with no time left the condition is still checked once.
+            Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+            if (remaining.isNegative()) {
+                remaining = Duration.ZERO;
+            }
+            T result = new WebDriverWait(driver(), remaining, pollingInterval(remaining)).until(expected);
+            met = true;
+            return result;
+        } finally {
+            CommandMetrics.endWait();
+            // Timeouts are recorded too, so a locator that outgrew its timings gets a longer wait next
+            // time. Not for checks that an element is gone: there a timeout means it stayed, which
+            // says nothing about how long it takes to go.
+            if (ConfigReader.isAdaptiveWait() && (met || !condition.isNegative())) {
+                LocatorTimings.get().record(key, Duration.ofNanos(System.nanoTime() - start),
+                        met && !condition.isNegative());
+            }
+        }
+    }
+    
+    private Duration adaptiveTimeout(String key, Duration defaultTimeout) {
+        if (!ConfigReader.isAdaptiveWait()) {
+            return defaultTimeout;
+        }
+        Duration p99 = LocatorTimings.get().p99(key);
+        if (p99 == null) {
+            return defaultTimeout;
+        }
+        long millis = Math.round(p99.toMillis() * ConfigReader.getAdaptiveWaitMultiplier());
+        millis = Math.max(millis, ConfigReader.getAdaptiveWaitMinMillis());
+        return Duration.ofMillis(Math.min(millis, defaultTimeout.toMillis()));
+    }
+    
+    // Short waits poll more often, so they do not spend most of their time asleep.
+    private static Duration pollingInterval(Duration timeout) {
+        return Duration.ofMillis(Math.max(50, Math.min(500, timeout.toMillis() / 10)));
+    }
+    
+    private Duration waitDuration() {
+        driver();
+        return waitDuration;
+    }
+    
+    /**
+     * Lets the page report when the condition holds (see {@link DomWaiter}). Once it does, the
+     * follow-up WebDriverWait succeeds on its first check; if the event-driven wait is unavailable,
+     * that WebDriverWait simply polls as before.
+     *
+     * @throws TimeoutException if the page reports that the condition never held
+     */
+    private void awaitInPage(By locator, DomWaiter.Condition condition, Duration timeout) {
+        driver();
+        if (domWaiter.await(locator, condition, timeout) == DomWaiter.Outcome.TIMED_OUT) {
+            throw new TimeoutException("Expected condition failed: waiting for element to be "
+                    + condition.name().toLowerCase() + " located by " + locator
+                    + " (tried for " + timeout.toMillis() + " ms)");
+        }
     }
     
     /**
@@ -42,8 +261,10 @@ public class UiActions {
      * @param locator the locator of the element to click
      */
     public void click(By locator) {
-        WebElement element = wait.until(ExpectedConditions.elementToBeClickable(locator));
-        element.click();
+        timedRun("click", locator, () -> {
+            WebElement element = waitForClickable(locator);
+            element.click();
+        });
     }
     
     /**
@@ -53,9 +274,11 @@ public class UiActions {
      * @param text the text to send
      */
     public void fill(By locator, String text) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        element.clear();
-        element.sendKeys(text);
+        timedRun("fill", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            element.clear();
+            element.sendKeys(text);
+        });
     }
     
     /**
@@ -65,8 +288,10 @@ public class UiActions {
      * @return the text content of the element
      */
     public String getText(By locator) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        return element.getText();
+        return timed("getText", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            return element.getText();
+        });
     }
     
     /**
@@ -75,8 +300,10 @@ public class UiActions {
      * @param locator the locator of the element to hover on
      */
     public void hover(By locator) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        actions.moveToElement(element).perform();
+        timedRun("hover", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            actions().moveToElement(element).perform();
+        });
     }
     
     /**
@@ -85,8 +312,10 @@ public class UiActions {
      * @param locator the locator of the element to scroll into view
      */
     public void scrollIntoView(By locator) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+        timedRun("scrollIntoView", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            ((JavascriptExecutor) driver()).executeScript("arguments[0].scrollIntoView(true);", element);
+        });
     }
     
     /**
@@ -95,8 +324,10 @@ public class UiActions {
      * @param locator the locator of the element to double-click
      */
     public void doubleClick(By locator) {
-        WebElement element = wait.until(ExpectedConditions.elementToBeClickable(locator));
-        actions.doubleClick(element).perform();
+        timedRun("doubleClick", locator, () -> {
+            WebElement element = waitForClickable(locator);
+            actions().doubleClick(element).perform();
+        });
     }
     
     /**
@@ -105,8 +336,10 @@ public class UiActions {
      * @param locator the locator of the element for the context click
      */
     public void rightClick(By locator) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        actions.contextClick(element).perform();
+        timedRun("rightClick", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            actions().contextClick(element).perform();
+        });
     }
     
     /**
@@ -115,8 +348,10 @@ public class UiActions {
      * @param locator the locator of the input field to clear
      */
     public void clear(By locator) {
-        WebElement element = wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        element.clear();
+        timedRun("clear", locator, () -> {
+            WebElement element = waitForVisible(locator);
+            element.clear();
+        });
     }
     
     // ===== Navigation Methods =====
@@ -127,39 +362,75 @@ public class UiActions {
      * @param url the URL to navigate to
      */
     public void navigateTo(String url) {
-        driver.navigate().to(url);
-        waitForPageLoad();
+        timedRun("navigateTo", null, () -> {
+            driver().navigate().to(url);
+            elementCache.clear();
+            waitForPageLoad();
+        });
     }
     
     /**
      * Refreshes the current page and waits for it to load.
      */
     public void refresh() {
-        driver.navigate().refresh();
-        waitForPageLoad();
+        timedRun("refresh", null, () -> {
+            driver().navigate().refresh();
+            elementCache.clear();
+            waitForPageLoad();
+        });
     }
     
     /**
      * Navigates back in browser history and waits for the page to load.
      */
     public void goBack() {
-        driver.navigate().back();
-        waitForPageLoad();
+        timedRun("goBack", null, () -> {
+            driver().navigate().back();
+            elementCache.clear();
+            waitForPageLoad();
+        });
     }
     
     /**
      * Navigates forward in browser history and waits for the page to load.
      */
     public void goForward() {
-        driver.navigate().forward();
-        waitForPageLoad();
+        timedRun("goForward", null, () -> {
+            driver().navigate().forward();
+            elementCache.clear();
+            waitForPageLoad();
+        });
     }
     
     /**
-     * Waits for the page to load completely by checking the document.readyState.
+     * Waits for the page to be ready according to {@code page.load.strategy}: until the network
+     * has been idle for the quiet window, until document.readyState is complete, or not at all.
+     * The network-idle strategy falls back to document.readyState when the session has no BiDi
+     * network monitor.
      */
     private void waitForPageLoad() {
-        wait.until(webDriver -> ((JavascriptExecutor) driver)
+        String strategy = ConfigReader.getPageLoadStrategy();
+        if ("none".equalsIgnoreCase(strategy)) {
+            return;
+        }
+        CommandMetrics.beginWait();
+        try {
+            awaitPageLoad(strategy);
+        } finally {
+            CommandMetrics.endWait();
+        }
+    }
+    
+    private void awaitPageLoad(String strategy) {
+        if ("networkIdle".equalsIgnoreCase(strategy)) {
+            NetworkMonitor monitor = DriverFactory.getNetworkMonitor(driver());
+            if (monitor != null) {
+                // A page that never goes quiet (polling, long-lived requests) is used as it is.
+                monitor.awaitIdle(Duration.ofMillis(ConfigReader.getNetworkQuietMillis()), waitDuration);
+                return;
+            }
+        }
+        explicitWait().until(webDriver -> ((JavascriptExecutor) driver())
                 .executeScript("return document.readyState").equals("complete"));
     }
     
@@ -172,11 +443,14 @@ public class UiActions {
      * @return true if the element is displayed, false otherwise
      */
     public boolean isDisplayed(By locator) {
-        try {
-            return wait.until(ExpectedConditions.visibilityOfElementLocated(locator)).isDisplayed();
-        } catch (Exception e) {
-            return false;
-        }
+        return timed("isDisplayed", locator, () -> {
+            try {
+                return waitForVisible(locator).isDisplayed();
+            } catch (Exception e) {
+                rethrowIfStale(e);
+                return false;
+            }
+        });
     }
 
     /**
@@ -186,13 +460,65 @@ public class UiActions {
      * @return true if the element exists, false otherwise
      */
     public boolean exists(By locator) {
-        try {
-            driver.findElement(locator);
-            return true;
-        } catch (NoSuchElementException e) {
-            return false;
+        return timed("exists", locator, () -> {
+            try {
+                driver().findElement(locator);
+                return true;
+            } catch (NoSuchElementException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Checks that an element is not displayed, either hidden or not in the DOM at all.
+     * Waits at most {@code wait.negative.millis} for it to go away, so a passing check is fast.
+     *
+     * @param locator the locator of the element
+     * @return true if the element is not displayed, false if it stays visible
+     */
+    public boolean isNotDisplayed(By locator) {
+        return timed("isNotDisplayed", locator, () -> {
+            elementCache.evict(locator);
+            try {
+                return waitFor(locator, DomWaiter.Condition.INVISIBLE,
+                        ExpectedConditions.invisibilityOfElementLocated(locator), negativeWaitDuration());
+            } catch (TimeoutException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Checks that an element is not in the DOM. Waits at most {@code wait.negative.millis}
+     * for it to be removed, so a passing check is fast.
+     *
+     * @param locator the locator of the element
+     * @return true if the element is absent, false if it stays in the DOM
+     */
+    public boolean isAbsent(By locator) {
+        return timed("isAbsent", locator, () -> {
+            elementCache.evict(locator);
+            try {
+                return waitFor(locator, DomWaiter.Condition.DETACHED,
+                        webDriver -> webDriver.findElements(locator).isEmpty() ? Boolean.TRUE : null,
+                        negativeWaitDuration());
+            } catch (TimeoutException e) {
+                return false;
+            }
+        });
+    }
+
+    // With the element cache on, a stale element is left to timed() to retry, not read as a failed check.
+    private void rethrowIfStale(Exception e) {
+        if (e instanceof StaleElementReferenceException && elementCache.isEnabled()) {
+            throw (StaleElementReferenceException) e;
         }
     }
+    
+    private static Duration negativeWaitDuration() {
+        return Duration.ofMillis(ConfigReader.getNegativeWaitMillis());
+    }
 
     /**
      * Checks if an element is enabled.
@@ -201,11 +527,14 @@ public class UiActions {
      * @return true if the element is enabled, false otherwise
      */
     public boolean isEnabled(By locator) {
-        try {
-            return wait.until(ExpectedConditions.presenceOfElementLocated(locator)).isEnabled();
-        } catch (Exception e) {
-            return false;
-        }
+        return timed("isEnabled", locator, () -> {
+            try {
+                return waitForPresent(locator).isEnabled();
+            } catch (Exception e) {
+                rethrowIfStale(e);
+                return false;
+            }
+        });
     }
 
     /**
@@ -215,11 +544,14 @@ public class UiActions {
      * @return true if the element is selected, false otherwise
      */
     public boolean isSelected(By locator) {
-        try {
-            return wait.until(ExpectedConditions.presenceOfElementLocated(locator)).isSelected();
-        } catch (Exception e) {
-            return false;
-        }
+        return timed("isSelected", locator, () -> {
+            try {
+                return waitForPresent(locator).isSelected();
+            } catch (Exception e) {
+                rethrowIfStale(e);
+                return false;
+            }
+        });
     }
 
     /**
@@ -230,12 +562,15 @@ public class UiActions {
      * @return the attribute value or empty string if not found
      */
     public String getAttribute(By locator, String attribute) {
-        try {
-            return wait.until(ExpectedConditions.presenceOfElementLocated(locator))
-                    .getAttribute(attribute);
-        } catch (Exception e) {
-            return "";
-        }
+        return timed("getAttribute", locator, () -> {
+            try {
+                return waitForPresent(locator)
+                        .getAttribute(attribute);
+            } catch (Exception e) {
+                rethrowIfStale(e);
+                return "";
+            }
+        });
     }
 
     /**
@@ -246,11 +581,13 @@ public class UiActions {
      * @return true if the element contains the text, false otherwise
      */
     public boolean containsText(By locator, String text) {
-        try {
-            return wait.until(ExpectedConditions.textToBePresentInElementLocated(locator, text));
-        } catch (Exception e) {
-            return false;
-        }
+        return timed("containsText", locator, () -> {
+            try {
+                return explicitWait().until(ExpectedConditions.textToBePresentInElementLocated(locator, text));
+            } catch (Exception e) {
+                return false;
+            }
+        });
     }
 
     /**
@@ -261,21 +598,78 @@ public class UiActions {
      * @return the value of the CSS property
      */
     public String getCssValue(By locator, String cssProperty) {
-        return wait.until(ExpectedConditions.presenceOfElementLocated(locator))
-                .getCssValue(cssProperty);
+        return timed("getCssValue", locator, () -> {
+            return waitForPresent(locator)
+                    .getCssValue(cssProperty);
+        });
     }
     
     // Additional UI actions can be added as needed (e.g., drag and drop, send special keys, etc.)
 
+    // ===== Batch Methods =====
+
+    /**
+     * Reads the state of several elements in a single browser round trip. Waits once, until
+     * every locator resolves, instead of once per element.
+     *
+     * @param locators the locators of the elements to read
+     * @param attributes the attributes to read from every element
+     * @return the state of each element, keyed by locator in the order given
+     */
+    @SuppressWarnings("unchecked")
+    public Map<By, ElementState> readAll(List<By> locators, String... attributes) {
+        return timed("readAll", null, () -> {
+            List<List<String>> specs = DomScripts.toSpecs(locators);
+            List<Map<String, Object>> states = (List<Map<String, Object>>) explicitWait().until(webDriver ->
+                    ((JavascriptExecutor) driver()).executeScript(DomScripts.READ, specs, List.of(attributes)));
+
+            Map<By, ElementState> result = new LinkedHashMap<>();
+            for (int i = 0; i < locators.size(); i++) {
+                Map<String, Object> state = states.get(i);
+                Map<String, String> values = new LinkedHashMap<>();
+                ((Map<String, Object>) state.get("attributes"))
+                        .forEach((name, value) -> values.put(name, String.valueOf(value)));
+                result.put(locators.get(i), new ElementState(
+                        (String) state.get("text"),
+                        Boolean.TRUE.equals(state.get("displayed")),
+                        Boolean.TRUE.equals(state.get("enabled")),
+                        Boolean.TRUE.equals(state.get("selected")),
+                        values));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Fills several input fields in a single browser round trip once all of them are visible.
+     * Values are assigned directly and {@code input}/{@code change} events are dispatched, so use
+     * {@link #fill(By, String)} where per-keystroke handlers must fire.
+     *
+     * @param values the text to set, keyed by the locator of each input field
+     */
+    public void fillAll(Map<By, String> values) {
+        timedRun("fillAll", null, () -> {
+            List<List<String>> specs = DomScripts.toSpecs(values.keySet());
+            List<String> texts = new ArrayList<>(values.values());
+            explicitWait().until(webDriver -> (Boolean) ((JavascriptExecutor) driver())
+                    .executeScript(DomScripts.FILL, specs, texts));
+        });
+    }
+
     // ===== Window Handling Methods =====
     
     /**
      * Switches to the last opened window
      */
     public void switchToLastWindow() {
-        Set<String> windowHandles = driver.getWindowHandles();
-        ArrayList<String> handles = new ArrayList<>(windowHandles);
-        driver.switchTo().window(handles.get(handles.size() - 1));
+        timedRun("switchToLastWindow", null, () -> {
+            Set<String> windowHandles = driver().getWindowHandles();
+            ArrayList<String> handles = new ArrayList<>(windowHandles);
+            String handle = handles.get(handles.size() - 1);
+            driver().switchTo().window(handle);
+            domWaiter.onWindowSwitch();
+            elementCache.onWindowSwitch(handle);
+        });
     }
 
     /**
@@ -283,7 +677,11 @@ public class UiActions {
      * @param windowHandle the handle of the window to switch to
      */
     public void switchToWindow(String windowHandle) {
-        driver.switchTo().window(windowHandle);
+        timedRun("switchToWindow", null, () -> {
+            driver().switchTo().window(windowHandle);
+            domWaiter.onWindowSwitch();
+            elementCache.onWindowSwitch(windowHandle);
+        });
     }
 
     /**
@@ -291,7 +689,9 @@ public class UiActions {
      * @return Set of window handles
      */
     public Set<String> getWindowHandles() {
-        return driver.getWindowHandles();
+        return timed("getWindowHandles", null, () -> {
+            return driver().getWindowHandles();
+        });
     }
 
     // ===== Frame Handling Methods =====
@@ -301,8 +701,12 @@ public class UiActions {
      * @param frameLocator the locator of the iframe
      */
     public void switchToFrame(By frameLocator) {
-        WebElement frameElement = wait.until(ExpectedConditions.presenceOfElementLocated(frameLocator));
-        driver.switchTo().frame(frameElement);
+        timedRun("switchToFrame", frameLocator, () -> {
+            WebElement frameElement = waitForPresent(frameLocator);
+            driver().switchTo().frame(frameElement);
+            domWaiter.onFrameSwitch(true);
+            elementCache.onFrameSwitch(frameLocator.toString());
+        });
     }
 
     /**
@@ -310,14 +714,22 @@ public class UiActions {
      * @param frameIndex the index of the iframe
      */
     public void switchToFrame(int frameIndex) {
-        wait.until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(frameIndex));
+        timedRun("switchToFrame", null, () -> {
+            explicitWait().until(ExpectedConditions.frameToBeAvailableAndSwitchToIt(frameIndex));
+            domWaiter.onFrameSwitch(true);
+            elementCache.onFrameSwitch("#" + frameIndex);
+        });
     }
 
     /**
      * Switches back to the default content (main document)
      */
     public void switchToDefaultContent() {
-        driver.switchTo().defaultContent();
+        timedRun("switchToDefaultContent", null, () -> {
+            driver().switchTo().defaultContent();
+            domWaiter.onFrameSwitch(false);
+            elementCache.onFrameSwitch("");
+        });
     }
 
     // ===== Shadow DOM Methods =====
@@ -329,9 +741,11 @@ public class UiActions {
      * @return WebElement from within the shadow DOM
      */
     public WebElement findInShadowRoot(By hostLocator, By shadowLocator) {
-        WebElement shadowHost = wait.until(ExpectedConditions.presenceOfElementLocated(hostLocator));
-        SearchContext shadowRoot = shadowHost.getShadowRoot();
-        return shadowRoot.findElement(shadowLocator);
+        return timed("findInShadowRoot", hostLocator, () -> {
+            WebElement shadowHost = waitForPresent(hostLocator);
+            SearchContext shadowRoot = shadowHost.getShadowRoot();
+            return shadowRoot.findElement(shadowLocator);
+        });
     }
 
     /**
@@ -340,7 +754,9 @@ public class UiActions {
      * @param shadowLocator the locator within the shadow DOM
      */
     public void clickInShadowRoot(By hostLocator, By shadowLocator) {
-        findInShadowRoot(hostLocator, shadowLocator).click();
+        timedRun("clickInShadowRoot", hostLocator, () -> {
+            findInShadowRoot(hostLocator, shadowLocator).click();
+        });
     }
 
     /**
@@ -350,8 +766,91 @@ public class UiActions {
      * @param text the text to enter
      */
     public void fillInShadowRoot(By hostLocator, By shadowLocator, String text) {
-        WebElement element = findInShadowRoot(hostLocator, shadowLocator);
-        element.clear();
-        element.sendKeys(text);
+        timedRun("fillInShadowRoot", hostLocator, () -> {
+            WebElement element = findInShadowRoot(hostLocator, shadowLocator);
+            element.clear();
+            element.sendKeys(text);
+        });
+    }
+
+    // ===== Download Methods =====
+
+    /**
+     * Waits for a download to finish in this browser's download directory, using the explicit
+     * wait duration as the timeout.
+     *
+     * @param fileNameGlob the file name to wait for, as a glob such as {@code report-*.pdf}
+     * @return the downloaded file
+     */
+    public Path waitForDownload(String fileNameGlob) {
+        return waitForDownload(fileNameGlob, waitDuration());
+    }
+
+    /**
+     * Waits for a download to finish in this browser's download directory (see
+     * {@link DriverFactory#getDownloadDirectory()}). The directory is watched for file system
+     * events, so the wait returns as soon as the browser has written the file. A file counts as
+     * finished once it matches and neither it nor a sibling of the same name is still a partial
+     * download ({@code .crdownload} for Chrome and Edge, {@code .part} for Firefox).
+     *
+     * @param fileNameGlob the file name to wait for, as a glob such as {@code report-*.pdf}
+     * @param timeout how long to wait
+     * @return the downloaded file
+     * @throws TimeoutException if no matching download finished in time
+     */
+    public Path waitForDownload(String fileNameGlob, Duration timeout) {
+        return timed("waitForDownload", null, () -> {
+            Path directory = DriverFactory.getDownloadDirectory();
+            if (directory == null) {
+                throw new IllegalStateException("The browser of this thread has no download directory of its own"
+                        + " (a browser shared through user contexts needs BiDi browser.setDownloadBehavior)");
+            }
+            PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + fileNameGlob);
+            CommandMetrics.beginWait();
+            try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+                // Registered before the first look, so a download finishing in between is not missed.
+                directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                long deadline = System.nanoTime() + timeout.toNanos();
+                while (true) {
+                    Path finished = findFinishedDownload(directory, matcher);
+                    if (finished != null) {
+                        return finished;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new TimeoutException("No download matching " + fileNameGlob + " finished in "
+                                + directory + " (tried for " + timeout.toMillis() + " ms)");
+                    }
+                    // Bounded, as some platforms (macOS) only poll for changes every few seconds.
+                    WatchKey key = watcher.poll(Math.min(remaining, DOWNLOAD_RESCAN_NANOS), TimeUnit.NANOSECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to watch download directory " + directory, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + fileNameGlob, e);
+            } finally {
+                CommandMetrics.endWait();
+            }
+        });
+    }
+
+    private static Path findFinishedDownload(Path directory, PathMatcher matcher) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> matcher.matches(file.getFileName()) && Files.isRegularFile(file))
+                    .filter(file -> !isPartialDownload(file.getFileName().toString()))
+                    .filter(file -> PARTIAL_DOWNLOAD_SUFFIXES.stream()
+                            .noneMatch(suffix -> Files.exists(file.resolveSibling(file.getFileName() + suffix))))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static boolean isPartialDownload(String fileName) {
+        return PARTIAL_DOWNLOAD_SUFFIXES.stream().anyMatch(fileName::endsWith);
     }
 } 
\ No newline at end of file
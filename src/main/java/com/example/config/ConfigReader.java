@@ -1,45 +1,243 @@
 package com.example.config;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Properties;
 
+/**
+ * Static access to the framework configuration. The values are resolved once, when the class is
+ * first used, into an immutable {@link ConfigSnapshot}; see there for the sources and their order.
+ */
 public class ConfigReader {
-    private static Properties properties;
-    
-    static {
-        try {
-            // Load configuration from the config.properties file
-            FileInputStream fis = new FileInputStream("src/main/resources/config.properties");
-            properties = new Properties();
-            properties.load(fis);
-        } catch (IOException e) {
-            e.printStackTrace();
-            properties = new Properties();
-        }
-    }
+    private static final ConfigSnapshot config = ConfigSnapshot.load();
     
     public static String getBrowserName() {
-        return properties.getProperty("browser.name", "chrome");
+        return config.browserName;
     }
     
     public static long getExplicitWaitDuration() {
-        // Trim the value to remove any extra spaces before parsing.
-        return Long.parseLong(properties.getProperty("explicit.wait.duration", "10").trim());
+        return config.explicitWaitDuration;
     }
     
     public static List<String> getBrowserOptions(String browser) {
-        String options = properties.getProperty(browser + ".options", "");
-        return options.isEmpty() ? List.of() : Arrays.asList(options.split(","));
+        return config.browserOptions(browser);
     }
     
     public static boolean isHeadless() {
-        return Boolean.parseBoolean(properties.getProperty("browser.headless", "false"));
+        return config.headless;
     }
     
     public static String getDownloadDirectory() {
-        return properties.getProperty("browser.download.directory", System.getProperty("user.home") + "/Downloads");
+        return config.downloadDirectory;
+    }
+    
+    public static boolean isDriverPoolEnabled() {
+        return config.driverPoolEnabled;
+    }
+    
+    public static int getDriverPoolMaxSize() {
+        return config.driverPoolMaxSize;
+    }
+    
+    public static int getDriverPoolMaxUses() {
+        return config.driverPoolMaxUses;
+    }
+    
+    public static boolean isDriverPoolRetireOnFailure() {
+        return config.driverPoolRetireOnFailure;
+    }
+    
+    public static boolean isDriverPoolPrewarm() {
+        return config.driverPoolPrewarm;
+    }
+    
+    public static int getUserContextsPerBrowser() {
+        return config.userContextsPerBrowser;
+    }
+    
+    public static boolean isDriverServiceShared() {
+        return config.driverServiceShared;
+    }
+    
+    public static String getDriverBinaryCacheFile() {
+        return config.driverBinaryCacheFile;
+    }
+    
+    public static String getWaitStrategy() {
+        return config.waitStrategy;
+    }
+    
+    public static long getNegativeWaitMillis() {
+        return config.negativeWaitMillis;
+    }
+    
+    public static boolean isAdaptiveWait() {
+        return config.adaptiveWait;
+    }
+    
+    public static double getAdaptiveWaitMultiplier() {
+        return config.adaptiveWaitMultiplier;
+    }
+    
+    public static long getAdaptiveWaitMinMillis() {
+        return config.adaptiveWaitMinMillis;
+    }
+    
+    public static String getWaitTimingsFile() {
+        return config.waitTimingsFile;
+    }
+    
+    public static String getPageLoadStrategy() {
+        return config.pageLoadStrategy;
+    }
+    
+    public static long getNetworkQuietMillis() {
+        return config.networkQuietMillis;
+    }
+    
+    public static List<String> getNetworkBlockPatterns() {
+        return config.networkBlockPatterns;
+    }
+    
+    public static List<String> getNetworkAllowPatterns() {
+        return config.networkAllowPatterns;
+    }
+    
+    public static String getNetworkBlockMode() {
+        return config.networkBlockMode;
+    }
+    
+    public static String getHarMode() {
+        return config.harMode;
+    }
+    
+    public static String getHarFile() {
+        return config.harFile;
+    }
+    
+    public static String getApiBaseUrl() {
+        return config.apiBaseUrl;
+    }
+    
+    public static long getApiTimeout() {
+        return config.apiTimeout;
+    }
+    
+    public static String getScenarioOrder() {
+        return config.scenarioOrder;
+    }
+    
+    public static String getScenarioHistoryFile() {
+        return config.scenarioHistoryFile;
+    }
+    
+    public static int getUiLaneThreads() {
+        return config.uiLaneThreads;
+    }
+    
+    public static int getApiLaneThreads() {
+        return config.apiLaneThreads;
+    }
+    
+    public static boolean isApiLaneVirtual() {
+        return config.apiLaneVirtual;
+    }
+    
+    public static boolean isGovernorEnabled() {
+        return config.governorEnabled;
+    }
+    
+    public static int getGovernorMinThreads() {
+        return config.governorMinThreads;
+    }
+    
+    public static int getGovernorMaxThreads() {
+        return config.governorMaxThreads;
+    }
+    
+    public static long getGovernorIntervalMillis() {
+        return config.governorIntervalMillis;
+    }
+    
+    public static double getGovernorCpuHigh() {
+        return config.governorCpuHigh;
+    }
+    
+    public static double getGovernorCpuLow() {
+        return config.governorCpuLow;
+    }
+    
+    public static double getGovernorMinFreeMemory() {
+        return config.governorMinFreeMemory;
+    }
+    
+    public static double getGovernorMaxWaitSlowdown() {
+        return config.governorMaxWaitSlowdown;
+    }
+    
+    public static String getReportMode() {
+        return config.reportMode;
+    }
+    
+    public static int getScreenshotWriterThreads() {
+        return config.screenshotWriterThreads;
+    }
+    
+    public static int getScreenshotMaxPending() {
+        return config.screenshotMaxPending;
+    }
+    
+    public static double getScreenshotScale() {
+        return config.screenshotScale;
+    }
+    
+    public static String getScreenshotFormat() {
+        return config.screenshotFormat;
+    }
+    
+    public static float getScreenshotQuality() {
+        return config.screenshotQuality;
+    }
+    
+    public static boolean isElementCacheEnabled() {
+        return config.elementCacheEnabled;
+    }
+    
+    public static boolean isMetricsEnabled() {
+        return config.metricsEnabled;
+    }
+    
+    public static boolean isTimelineEnabled() {
+        return config.timelineEnabled;
+    }
+    
+    public static boolean isRoundTripTraceEnabled() {
+        return config.roundTripTraceEnabled;
+    }
+    
+    /**
+     * @return the index of the shard this JVM runs, usually from {@code -Dshard.index} or {@code SHARD_INDEX}
+     */
+    public static int getShardIndex() {
+        return config.shardIndex;
+    }
+    
+    /**
+     * @return the number of shards the suite is split into, usually from {@code -Dshard.count} or {@code SHARD_COUNT}
+     */
+    public static int getShardCount() {
+        return config.shardCount;
+    }
+    
+    /**
+     * @return the read-only history file the shards balance their split by, or empty to split by scenario only
+     */
+    public static String getShardHistoryFile() {
+        return config.shardHistoryFile;
+    }
+    
+    /**
+     * @return the directory reports are written to; each shard gets its own
+     */
+    public static String getReportDirectory() {
+        return config.reportDirectory;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,251 @@
+package com.example.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The configuration of a run, resolved once and parsed into typed values, so nothing is looked up
+ * or parsed again while the tests run. Each key is taken from the first source that has it:
+ * <ol>
+ * <li>a system property, e.g. {@code -Dbrowser.name=firefox}</li>
+ * <li>an environment variable named like the key in upper case with underscores, e.g. {@code BROWSER_NAME}</li>
+ * <li>the profile file {@code config-<profile>.properties} on the classpath, when a profile is
+ *     selected with {@code -Dconfig.profile} or {@code CONFIG_PROFILE}</li>
+ * <li>{@code config.properties} on the classpath</li>
+ * <li>the built-in default</li>
+ * </ol>
+ * A value that cannot be parsed fails the run at startup, naming the key.
+ */
+final class ConfigSnapshot {
+    private static final String FILE = "config.properties";
+    private static final Map<String, String> DEFAULT_BROWSER_OPTIONS = Map.of(
+            "chrome", "--start-maximized,--incognito,--disable-notifications",
+            "firefox", "-private",
+            "edge", "--start-maximized,--inprivate");
+
+    private final Properties files;
+
+    final String browserName;
+    final String downloadDirectory;
+    private final Map<String, List<String>> browserOptions;
+    final long explicitWaitDuration;
+    final boolean headless;
+    final boolean driverPoolEnabled;
+    final int driverPoolMaxSize;
+    final int driverPoolMaxUses;
+    final boolean driverPoolRetireOnFailure;
+    final boolean driverPoolPrewarm;
+    final int userContextsPerBrowser;
+    final boolean driverServiceShared;
+    final String driverBinaryCacheFile;
+    final String waitStrategy;
+    final long negativeWaitMillis;
+    final boolean adaptiveWait;
+    final double adaptiveWaitMultiplier;
+    final long adaptiveWaitMinMillis;
+    final String waitTimingsFile;
+    final String pageLoadStrategy;
+    final long networkQuietMillis;
+    final List<String> networkBlockPatterns;
+    final List<String> networkAllowPatterns;
+    final String networkBlockMode;
+    final String harMode;
+    final String harFile;
+    final String apiBaseUrl;
+    final long apiTimeout;
+    final String scenarioOrder;
+    final String scenarioHistoryFile;
+    final int uiLaneThreads;
+    final int apiLaneThreads;
+    final boolean apiLaneVirtual;
+    final boolean governorEnabled;
+    final int governorMinThreads;
+    final int governorMaxThreads;
+    final long governorIntervalMillis;
+    final double governorCpuHigh;
+    final double governorCpuLow;
+    final double governorMinFreeMemory;
+    final double governorMaxWaitSlowdown;
+    final String reportMode;
+    final int screenshotWriterThreads;
+    final int screenshotMaxPending;
+    final double screenshotScale;
+    final String screenshotFormat;
+    final float screenshotQuality;
+    final boolean elementCacheEnabled;
+    final boolean metricsEnabled;
+    final boolean timelineEnabled;
+    final boolean roundTripTraceEnabled;
+    final int shardIndex;
+    final int shardCount;
+    final String shardHistoryFile;
+    final String reportDirectory;
+
+    private ConfigSnapshot(Properties files) {
+        this.files = files;
+        browserName = string("browser.name", "chrome");
+        downloadDirectory = string("browser.download.directory", "test-output/downloads");
+        Map<String, List<String>> options = new HashMap<>();
+        DEFAULT_BROWSER_OPTIONS.forEach((browser, defaults) -> options.put(browser, list(browser + ".options", defaults)));
+        browserOptions = Collections.unmodifiableMap(options);
+        explicitWaitDuration = longValue("explicit.wait.duration", "10");
+        headless = bool("browser.headless", "false");
+        driverPoolEnabled = bool("driver.pool.enabled", "true");
+        driverPoolMaxSize = intValue("driver.pool.max.size", "6");
+        driverPoolMaxUses = intValue("driver.pool.max.uses", "50");
+        driverPoolRetireOnFailure = bool("driver.pool.retire.on.failure", "true");
+        driverPoolPrewarm = bool("driver.pool.prewarm", "true");
+        userContextsPerBrowser = intValue("driver.user.contexts", "1");
+        driverServiceShared = bool("driver.service.shared", "true");
+        driverBinaryCacheFile = string("driver.binary.cache.file", "test-output/driver-binaries.json");
+        waitStrategy = string("wait.strategy", "bidi");
+        negativeWaitMillis = longValue("wait.negative.millis", "2000");
+        adaptiveWait = bool("wait.adaptive", "false");
+        adaptiveWaitMultiplier = doubleValue("wait.adaptive.multiplier", "3");
+        adaptiveWaitMinMillis = longValue("wait.adaptive.min.millis", "1000");
+        waitTimingsFile = string("wait.timings.file", "test-output/locator-timings.json");
+        pageLoadStrategy = string("page.load.strategy", "networkIdle");
+        networkQuietMillis = longValue("page.load.network.quiet.millis", "500");
+        networkBlockPatterns = list("network.block", "");
+        networkAllowPatterns = list("network.allow", "");
+        networkBlockMode = string("network.block.mode", "fail");
+        harMode = string("network.har.mode", "off");
+        harFile = string("network.har.file", "test-output/har/recording.har");
+        apiBaseUrl = string("api.base.url", "");
+        apiTimeout = longValue("api.timeout", "30");
+        scenarioOrder = string("scenario.order", "longest-first");
+        scenarioHistoryFile = string("scenario.history.file", "test-output/scenario-history.json");
+        uiLaneThreads = intValue("lane.ui.threads", "3");
+        apiLaneThreads = intValue("lane.api.threads", "16");
+        apiLaneVirtual = bool("lane.api.virtual", "true");
+        governorEnabled = bool("governor.enabled", "false");
+        governorMinThreads = intValue("governor.min.threads", "1");
+        governorMaxThreads = intValue("governor.max.threads", "6");
+        governorIntervalMillis = longValue("governor.interval.millis", "2000");
+        governorCpuHigh = doubleValue("governor.cpu.high", "0.85");
+        governorCpuLow = doubleValue("governor.cpu.low", "0.60");
+        governorMinFreeMemory = doubleValue("governor.memory.min.free", "0.10");
+        governorMaxWaitSlowdown = doubleValue("governor.wait.slowdown.max", "2.0");
+        reportMode = string("report.mode", "streaming");
+        screenshotWriterThreads = intValue("screenshot.writer.threads", "2");
+        screenshotMaxPending = intValue("screenshot.max.pending", "8");
+        screenshotScale = doubleValue("screenshot.scale", "1.0");
+        screenshotFormat = string("screenshot.format", "png");
+        screenshotQuality = floatValue("screenshot.quality", "0.8");
+        elementCacheEnabled = bool("element.cache.enabled", "false");
+        metricsEnabled = bool("metrics.enabled", "true");
+        timelineEnabled = bool("timeline.enabled", "true");
+        roundTripTraceEnabled = bool("trace.roundtrips", "false");
+        shardIndex = intValue("shard.index", "0");
+        shardCount = intValue("shard.count", "1");
+        shardHistoryFile = string("shard.history.file", "");
+        reportDirectory = shardCount > 1 ? "test-output/shards/shard-" + shardIndex : "test-output";
+    }
+
+    /**
+     * Reads {@code config.properties} and the selected profile file from the classpath and
+     * resolves every key against them and the overriding system properties and environment.
+     *
+     * @return the snapshot
+     */
+    static ConfigSnapshot load() {
+        Properties files = new Properties();
+        if (!read(FILE, files)) {
+            System.err.println("No " + FILE + " on the classpath, using the defaults");
+        }
+        String profile = override("config.profile");
+        if (profile != null && !profile.isEmpty()) {
+            String profileFile = "config-" + profile + ".properties";
+            if (!read(profileFile, files)) {
+                throw new IllegalStateException("Config profile " + profile + " selected, but there is no "
+                        + profileFile + " on the classpath");
+            }
+        }
+        return new ConfigSnapshot(files);
+    }
+
+    /**
+     * @param browser the browser name
+     * @return the extra arguments configured for the browser in {@code <browser>.options}
+     */
+    List<String> browserOptions(String browser) {
+        return browserOptions.getOrDefault(browser, List.of());
+    }
+
+    private static boolean read(String resource, Properties into) {
+        try (InputStream in = ConfigSnapshot.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                return false;
+            }
+            into.load(in);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + resource, e);
+        }
+    }
+
+    private static String override(String key) {
+        String value = System.getProperty(key);
+        return value != null ? value : System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+    }
+
+    private String string(String key, String defaultValue) {
+        String value = override(key);
+        if (value == null) {
+            value = files.getProperty(key, defaultValue);
+        }
+        return value.trim();
+    }
+
+    private List<String> list(String key, String defaultValue) {
+        String value = string(key, defaultValue);
+        return value.isEmpty() ? List.of() : List.copyOf(Arrays.asList(value.split(",")));
+    }
+
+    private boolean bool(String key, String defaultValue) {
+        return Boolean.parseBoolean(string(key, defaultValue));
+    }
+
+    private int intValue(String key, String defaultValue) {
+        String value = string(key, defaultValue);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, e);
+        }
+    }
+
+    private long longValue(String key, String defaultValue) {
+        String value = string(key, defaultValue);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, e);
+        }
+    }
+
+    private double doubleValue(String key, String defaultValue) {
+        String value = string(key, defaultValue);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, e);
+        }
+    }
+
+    private float floatValue(String key, String defaultValue) {
+        return (float) doubleValue(key, defaultValue);
+    }
+
+    private static IllegalStateException invalid(String key, String value, NumberFormatException cause) {
+        return new IllegalStateException("Invalid value for " + key + ": " + value, cause);
+    }
+}
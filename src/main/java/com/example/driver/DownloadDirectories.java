@@ -0,0 +1,67 @@
+package com.example.driver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Creates and removes the download directory of each browser session. Every session gets its own
+ * directory below {@code browser.download.directory}, so parallel scenarios never see each
+ * other's files.
+ */
+final class DownloadDirectories {
+    private DownloadDirectories() {
+    }
+
+    /**
+     * @param root the directory the session directories are created in
+     * @return a new, empty directory for one session, as an absolute path (browsers require one)
+     */
+    static Path create(String root) {
+        try {
+            Path parent = Paths.get(root).toAbsolutePath();
+            Files.createDirectories(parent);
+            return Files.createTempDirectory(parent, "session-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a download directory in " + root, e);
+        }
+    }
+
+    /**
+     * Deletes everything in a session's directory, so the next scenario using the session starts
+     * without the previous one's downloads.
+     */
+    static void empty(Path directory) {
+        deleteTree(directory, false);
+    }
+
+    /**
+     * Deletes a session's directory with everything in it.
+     */
+    static void delete(Path directory) {
+        deleteTree(directory, true);
+    }
+
+    private static void deleteTree(Path directory, boolean includingDirectory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .filter(path -> includingDirectory || !path.equals(directory))
+                    .forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException e) {
+                            // A download still being written; it goes with the next cleanup.
+                        }
+                    });
+        } catch (IOException e) {
+            System.err.println("Unable to clean download directory " + directory + ": " + e);
+        }
+    }
+}
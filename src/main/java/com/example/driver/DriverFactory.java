@@ -1,25 +1,69 @@
 package com.example.driver;
 
 import com.example.config.ConfigReader;
+import com.example.driver.DriverPool.PooledDriver;
+import com.example.metrics.CommandMetrics;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.MutableCapabilities;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.HasBiDi;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DriverFactory manages WebDriver initialization based on configuration
  * and stores the driver instance in a ThreadLocal so that each thread gets its own instance.
+ * When {@code driver.pool.enabled} is set, sessions are leased from a per-browser {@link DriverPool}
+ * and reused across scenarios instead of being launched and quit every time.
+ * Sessions are started against driver services from {@link DriverServices}, which resolves the
+ * driver binaries once and can keep one driver process running for all sessions of a browser.
  */
 public class DriverFactory {
     // Use ThreadLocal to ensure each thread gets its own WebDriver instance.
     private static ThreadLocal<WebDriver> driver = new ThreadLocal<>();
+    // Pooled session leased by the current thread, if the pool is enabled.
+    private static ThreadLocal<PooledDriver> lease = new ThreadLocal<>();
+    // User context leased by the current thread, if browsers are shared between scenarios.
+    private static ThreadLocal<UserContextPool.UserContext> userContext = new ThreadLocal<>();
+    // One pool per browser type.
+    private static final Map<String, DriverPool> pools = new ConcurrentHashMap<>();
+    private static final Map<String, UserContextPool> userContextPools = new ConcurrentHashMap<>();
+    // BiDi network monitors of the live sessions, keyed by driver.
+    private static final Map<WebDriver, NetworkMonitor> monitors = new ConcurrentHashMap<>();
+    // Download directories of the live browsers, keyed by driver (the raw driver for shared browsers).
+    private static final Map<WebDriver, Path> downloadDirectories = new ConcurrentHashMap<>();
+    // Response cache for record/replay, shared by all sessions.
+    private static HarStore harStore;
+    // Driver binaries and the driver processes sessions are started with.
+    private static DriverServices driverServices;
+    // Per-browser options, built once from the configuration. They are never handed to a session;
+    // every session gets a copy it may change.
+    private static final Map<String, MutableCapabilities> templates = new ConcurrentHashMap<>();
 
     private static ChromeOptions getChromeOptions() {
+        return ((ChromeOptions) templates.computeIfAbsent("chrome", name -> buildChromeOptions()))
+                .merge(new ImmutableCapabilities());
+    }
+
+    private static FirefoxOptions getFirefoxOptions() {
+        return ((FirefoxOptions) templates.computeIfAbsent("firefox", name -> buildFirefoxOptions()))
+                .merge(new ImmutableCapabilities());
+    }
+
+    private static EdgeOptions getEdgeOptions() {
+        return ((EdgeOptions) templates.computeIfAbsent("edge", name -> buildEdgeOptions()))
+                .merge(new ImmutableCapabilities());
+    }
+
+    private static ChromeOptions buildChromeOptions() {
         ChromeOptions options = new ChromeOptions();
         
         // Add options from config
@@ -30,18 +74,13 @@ public class DriverFactory {
             options.addArguments("--headless=new");
         }
         
-        // Configure download directory
-        Map<String, Object> prefs = new HashMap<>();
-        prefs.put("download.default_directory", ConfigReader.getDownloadDirectory());
-        options.setExperimentalOption("prefs", prefs);
-        
         // Enable WebSocket DevTools
         options.setCapability("webSocketUrl", true);
         
         return options;
     }
 
-    private static FirefoxOptions getFirefoxOptions() {
+    private static FirefoxOptions buildFirefoxOptions() {
         FirefoxOptions options = new FirefoxOptions();
         
         // Add options from config
@@ -58,7 +97,7 @@ public class DriverFactory {
         return options;
     }
 
-    private static EdgeOptions getEdgeOptions() {
+    private static EdgeOptions buildEdgeOptions() {
         EdgeOptions options = new EdgeOptions();
         
         // Add options from config
@@ -75,27 +114,188 @@ public class DriverFactory {
         return options;
     }
 
+    /**
+     * Launches a brand-new browser session of the given type and attaches the per-session
+     * services (such as the BiDi network monitor and command metrics) that the configuration asks for.
+     *
+     * @param browser the browser name (chrome, firefox or edge)
+     * @return the new WebDriver instance
+     */
+    private static WebDriver createDriver(String browser) {
+        Path downloads = DownloadDirectories.create(ConfigReader.getDownloadDirectory());
+        WebDriver drv;
+        try {
+            drv = launchBrowser(browser, downloads);
+        } catch (RuntimeException e) {
+            DownloadDirectories.delete(downloads);
+            throw e;
+        }
+        // Scenarios see the instrumented driver; the monitor talks BiDi to the raw one.
+        WebDriver session = CommandMetrics.isInstrumenting() ? CommandMetrics.instrument(drv) : drv;
+        if (needsNetworkMonitor() && drv instanceof HasBiDi && ((HasBiDi) drv).maybeGetBiDi().isPresent()) {
+            monitors.put(session, new NetworkMonitor(drv,
+                    ConfigReader.getNetworkBlockPatterns(),
+                    ConfigReader.getNetworkAllowPatterns(),
+                    "stub".equalsIgnoreCase(ConfigReader.getNetworkBlockMode()),
+                    getHarStore()));
+        }
+        downloadDirectories.put(session, downloads);
+        return session;
+    }
+
+    private static boolean needsNetworkMonitor() {
+        return "networkIdle".equalsIgnoreCase(ConfigReader.getPageLoadStrategy())
+                || !ConfigReader.getNetworkBlockPatterns().isEmpty()
+                || getDefaultHarMode() != NetworkMonitor.HarMode.OFF;
+    }
+
+    /**
+     * Returns the HAR-backed response cache shared by all sessions, loading it on first use.
+     *
+     * @return the shared HAR store
+     */
+    public static synchronized HarStore getHarStore() {
+        if (harStore == null) {
+            harStore = HarStore.load(Paths.get(ConfigReader.getHarFile()));
+        }
+        return harStore;
+    }
+
+    /**
+     * @return the record/replay mode configured for the run, before any per-scenario tag override
+     */
+    public static NetworkMonitor.HarMode getDefaultHarMode() {
+        return NetworkMonitor.HarMode.valueOf(ConfigReader.getHarMode().toUpperCase());
+    }
+
+    /**
+     * Detaches the per-session services and quits the browser.
+     */
+    private static void destroyDriver(WebDriver drv) {
+        NetworkMonitor monitor = monitors.remove(drv);
+        if (monitor != null) {
+            try {
+                monitor.close();
+            } catch (Exception e) {
+                // The BiDi connection goes away with the session anyway.
+            }
+        }
+        try {
+            drv.quit();
+        } finally {
+            Path downloads = downloadDirectories.remove(drv);
+            if (downloads != null) {
+                DownloadDirectories.delete(downloads);
+            }
+        }
+    }
+
+    /**
+     * Starts a browser that hosts user contexts, with a download directory of its own.
+     */
+    private static WebDriver launchSharedBrowser(String browser) {
+        Path downloads = DownloadDirectories.create(ConfigReader.getDownloadDirectory());
+        try {
+            WebDriver drv = launchBrowser(browser, downloads);
+            downloadDirectories.put(drv, downloads);
+            return drv;
+        } catch (RuntimeException e) {
+            DownloadDirectories.delete(downloads);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a browser that saves downloads to the given directory without asking.
+     */
+    private static WebDriver launchBrowser(String browser, Path downloads) {
+        DriverServices services = getDriverServices();
+        String directory = downloads.toString();
+        switch (browser) {
+            case "firefox": {
+                FirefoxOptions options = getFirefoxOptions();
+                options.addPreference("browser.download.folderList", 2);
+                options.addPreference("browser.download.dir", directory);
+                options.addPreference("browser.download.useDownloadDir", true);
+                return new FirefoxDriver(services.firefox(options), options);
+            }
+            case "edge": {
+                EdgeOptions options = getEdgeOptions();
+                options.setExperimentalOption("prefs", Map.of(
+                        "download.default_directory", directory,
+                        "download.prompt_for_download", false));
+                return new EdgeDriver(services.edge(options), options);
+            }
+            case "chrome":
+            default: {
+                ChromeOptions options = getChromeOptions();
+                options.setExperimentalOption("prefs", Map.of(
+                        "download.default_directory", directory,
+                        "download.prompt_for_download", false));
+                return new ChromeDriver(services.chrome(options), options);
+            }
+        }
+    }
+
+    private static synchronized DriverServices getDriverServices() {
+        if (driverServices == null) {
+            driverServices = DriverServices.load(Paths.get(ConfigReader.getDriverBinaryCacheFile()),
+                    ConfigReader.isDriverServiceShared());
+        }
+        return driverServices;
+    }
+
+    private static DriverPool getPool(String browser) {
+        return pools.computeIfAbsent(browser, name -> new DriverPool(
+                name,
+                () -> createDriver(name),
+                DriverFactory::destroyDriver,
+                ConfigReader.getDriverPoolMaxSize(),
+                ConfigReader.getDriverPoolMaxUses()));
+    }
+
+    private static UserContextPool getUserContextPool(String browser) {
+        return userContextPools.computeIfAbsent(browser, name -> new UserContextPool(
+                name,
+                () -> launchSharedBrowser(name),
+                DriverFactory::destroyDriver,
+                ConfigReader.getUserContextsPerBrowser(),
+                ConfigReader.getDownloadDirectory()));
+    }
+
     /**
      * Initializes the WebDriver instance based on the browser specified in the config.
+     * When the driver pool is enabled the session is leased from the pool instead of launched.
+     * When {@code driver.user.contexts} is above 1, the scenario instead gets a user context of
+     * its own in a browser it shares with other scenarios (see {@link UserContextPool}).
      */
     public static void initDriver() {
         String browser = ConfigReader.getBrowserName().toLowerCase();
-        WebDriver drv = null;
         
-        switch (browser) {
-            case "firefox":
-                drv = new FirefoxDriver(getFirefoxOptions());
-                break;
-            case "edge":
-                drv = new EdgeDriver(getEdgeOptions());
-                break;
-            case "chrome":
-            default:
-                drv = new ChromeDriver(getChromeOptions());
-                break;
+        if (ConfigReader.getUserContextsPerBrowser() > 1) {
+            if (needsNetworkMonitor()) {
+                throw new IllegalStateException("driver.user.contexts above 1 shares a browser, which has no network "
+                        + "monitor: leave network.block empty, set network.har.mode=off and use a page.load.strategy "
+                        + "other than networkIdle");
+            }
+            UserContextPool.UserContext context = getUserContextPool(browser).lease();
+            userContext.set(context);
+            WebDriver view = context.getDriver();
+            driver.set(CommandMetrics.isInstrumenting() ? CommandMetrics.instrument(view) : view);
+        } else if (ConfigReader.isDriverPoolEnabled()) {
+            PooledDriver pooled = getPool(browser).lease();
+            lease.set(pooled);
+            driver.set(pooled.getDriver());
+        } else {
+            driver.set(createDriver(browser));
         }
-        
-        driver.set(drv);
+    }
+
+    /**
+     * @return true if the current thread's browser is shared with other scenarios through user contexts
+     */
+    public static boolean isSharedBrowser() {
+        return userContext.get() != null;
     }
 
     /**
@@ -107,13 +307,128 @@ public class DriverFactory {
         return driver.get();
     }
 
+    /**
+     * Returns the directory the current thread's browser saves downloads to. Every session has
+     * its own, emptied between the scenarios of a pooled session and deleted with the session.
+     * Scenarios sharing one browser through user contexts each have the directory of their context.
+     *
+     * @return the download directory, or null if the thread has no browser, or a user context
+     *         its browser cannot give a directory of its own
+     */
+    public static Path getDownloadDirectory() {
+        UserContextPool.UserContext context = userContext.get();
+        if (context != null) {
+            return context.getDownloadDirectory();
+        }
+        WebDriver browser = driver.get();
+        return browser == null ? null : downloadDirectories.get(browser);
+    }
+
+    /**
+     * Returns the BiDi network monitor attached to a session, if the configuration asked for one
+     * and the browser supports BiDi.
+     *
+     * @param drv the WebDriver instance
+     * @return the session's network monitor, or null if it has none
+     */
+    public static NetworkMonitor getNetworkMonitor(WebDriver drv) {
+        return monitors.get(drv);
+    }
+
+    /**
+     * Hands the current thread's WebDriver back. Pooled sessions are reset and returned to the
+     * pool (or retired when {@code failed} and the pool is configured to retire on failure);
+     * unpooled sessions are quit.
+     *
+     * @param failed whether the scenario that used the driver failed
+     */
+    public static void releaseDriver(boolean failed) {
+        if (releaseUserContext()) {
+            return;
+        }
+        PooledDriver pooled = lease.get();
+        if (pooled == null) {
+            quitDriver();
+            return;
+        }
+        lease.remove();
+        driver.remove();
+        Path downloads = downloadDirectories.get(pooled.getDriver());
+        if (downloads != null) {
+            DownloadDirectories.empty(downloads);
+        }
+        boolean discard = failed && ConfigReader.isDriverPoolRetireOnFailure();
+        getPool(ConfigReader.getBrowserName().toLowerCase()).release(pooled, discard);
+    }
+
     /**
      * Quits the WebDriver instance for the current thread and then removes it from the ThreadLocal.
      */
     public static void quitDriver() {
+        if (releaseUserContext()) {
+            return;
+        }
         if (driver.get() != null) {
-            driver.get().quit();
+            destroyDriver(driver.get());
             driver.remove();
         }
+        if (lease.get() != null) {
+            // The session is gone, so let the pool retire it and free its slot.
+            PooledDriver pooled = lease.get();
+            lease.remove();
+            getPool(ConfigReader.getBrowserName().toLowerCase()).release(pooled, true);
+        }
+    }
+
+    /**
+     * Closes the current thread's user context, if it has one. A user context is never reused,
+     * so passed and failed scenarios are treated alike.
+     *
+     * @return true if the thread had a user context
+     */
+    private static boolean releaseUserContext() {
+        UserContextPool.UserContext context = userContext.get();
+        if (context == null) {
+            return false;
+        }
+        userContext.remove();
+        driver.remove();
+        getUserContextPool(ConfigReader.getBrowserName().toLowerCase()).release(context);
+        return true;
+    }
+
+    /**
+     * Starts browsers for the configured browser type in the background so the first scenarios
+     * find a warm session waiting. Does nothing when the pool or pre-warming is disabled, or when
+     * browsers are shared through user contexts.
+     *
+     * @param count the number of sessions to keep warm, usually the number of UI scenarios that run
+     *              at once; capped at {@code driver.pool.max.size}
+     */
+    public static void prewarm(int count) {
+        if (!ConfigReader.isDriverPoolEnabled() || !ConfigReader.isDriverPoolPrewarm()
+                || ConfigReader.getUserContextsPerBrowser() > 1) {
+            return;
+        }
+        int size = Math.min(count, ConfigReader.getDriverPoolMaxSize());
+        getPool(ConfigReader.getBrowserName().toLowerCase()).prewarm(size);
+    }
+
+    /**
+     * Quits every idle pooled session, stops the shared driver services and writes any recorded
+     * responses to the HAR file.
+     * Called once at the end of the run.
+     */
+    public static void shutdown() {
+        pools.values().forEach(DriverPool::shutdown);
+        userContextPools.values().forEach(UserContextPool::shutdown);
+        synchronized (DriverFactory.class) {
+            if (driverServices != null) {
+                driverServices.shutdown();
+            }
+            if (harStore != null) {
+                harStore.save();
+            }
+        }
     }
-} 
\ No newline at end of file
+}
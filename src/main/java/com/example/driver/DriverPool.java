@@ -0,0 +1,332 @@
+package com.example.driver;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * A bounded pool of live WebDriver sessions for a single browser type.
+ * Sessions are leased to one scenario at a time, reset when they are returned
+ * and retired after a configurable number of uses or when they fail a health check.
+ * Browsers are launched on background threads, so a pool can be pre-warmed before the
+ * first scenario asks for a session and retired sessions are replaced asynchronously.
+ */
+public class DriverPool {
+    private final String browser;
+    private final Supplier<WebDriver> launcher;
+    private final Consumer<WebDriver> terminator;
+    private static final long LAUNCH_POLL_MILLIS = 250;
+
+    private final int maxSize;
+    private final int maxUses;
+    private final Semaphore capacity;
+    private final BlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<>();
+    private final ExecutorService launchers;
+    // Number of live sessions the pool keeps around once pre-warmed.
+    private volatile int warmTarget;
+    private volatile boolean closed;
+    private final AtomicBoolean backgroundFailureLogged = new AtomicBoolean();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param browser the browser type this pool serves, used for diagnostics
+     * @param launcher creates a brand-new session when the pool has to grow
+     * @param terminator quits a session that is retired
+     * @param maxSize the maximum number of live sessions (leased and idle)
+     * @param maxUses the number of leases after which a session is retired
+     */
+    public DriverPool(String browser, Supplier<WebDriver> launcher, Consumer<WebDriver> terminator,
+                      int maxSize, int maxUses) {
+        this.browser = browser;
+        this.launcher = launcher;
+        this.terminator = terminator;
+        this.maxSize = maxSize;
+        this.maxUses = maxUses;
+        this.capacity = new Semaphore(maxSize, true);
+        this.launchers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "driver-launcher-" + browser);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts browsers in the background until {@code count} sessions are live, without
+     * blocking the caller. Retired sessions are replaced up to the same count.
+     *
+     * @param count the number of sessions to keep warm
+     */
+    public void prewarm(int count) {
+        warmTarget = count;
+        while (liveSessions() < warmTarget && capacity.tryAcquire()) {
+            launchInBackground();
+        }
+    }
+
+    /**
+     * Launches a session nobody is waiting for. A failure is logged, once per pool, since no
+     * scenario would otherwise see it.
+     */
+    private void launchInBackground() {
+        launchAsync().whenComplete((ignored, failure) -> {
+            if (failure != null && backgroundFailureLogged.compareAndSet(false, true)) {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                System.err.println("Starting a " + browser + " session in the background failed; "
+                        + "scenarios will launch their own: " + cause);
+            }
+        });
+    }
+
+    /**
+     * Leases a healthy session, handing out whichever idle or freshly launched session is ready
+     * first. Blocks while the pool is at capacity and every session is leased.
+     *
+     * @return a session that belongs exclusively to the caller until it is released
+     */
+    public PooledDriver lease() {
+        // Each caller keeps at most one launch of its own in flight and takes whatever becomes
+        // idle first; it only sees a launch failure if its own launch failed.
+        CompletableFuture<Void> launch = null;
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("The " + browser + " session pool has been shut down");
+            }
+            PooledDriver pooled = idle.pollFirst();
+            if (pooled == null) {
+                if (launch != null && launch.isDone()) {
+                    rethrowFailure(launch);
+                    launch = null;
+                }
+                if (launch == null && capacity.tryAcquire()) {
+                    launch = launchAsync();
+                }
+                pooled = awaitIdle();
+            }
+            if (pooled == null) {
+                continue;
+            }
+            if (isHealthy(pooled.getDriver())) {
+                pooled.incrementUses();
+                return pooled;
+            }
+            retire(pooled);
+        }
+    }
+
+    private void rethrowFailure(CompletableFuture<Void> launch) {
+        try {
+            launch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private PooledDriver awaitIdle() {
+        try {
+            return idle.pollFirst(LAUNCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a " + browser + " session", e);
+        }
+    }
+
+    /**
+     * Launches one session on a background thread. The caller must already hold a capacity permit,
+     * which is handed back if the launch fails or the pool has been shut down.
+     *
+     * @return completes once the session is idle in the pool, or exceptionally if the launch failed
+     */
+    private CompletableFuture<Void> launchAsync() {
+        if (closed) {
+            capacity.release();
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.runAsync(this::launch, launchers);
+        } catch (RejectedExecutionException e) {
+            // Shut down between the check and the submission.
+            capacity.release();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void launch() {
+        PooledDriver pooled;
+        try {
+            pooled = new PooledDriver(launcher.get());
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        if (closed) {
+            retire(pooled);
+        } else {
+            idle.offerLast(pooled);
+        }
+    }
+
+    private int liveSessions() {
+        return maxSize - capacity.availablePermits();
+    }
+
+    /**
+     * Returns a session to the pool. The session is reset so the next scenario starts clean,
+     * or retired if it failed, reached its use limit, cannot be reset or the pool has been shut down.
+     *
+     * @param pooled the session to return
+     * @param discard true to retire the session regardless of its state
+     */
+    public void release(PooledDriver pooled, boolean discard) {
+        if (closed || discard || pooled.getUses() >= maxUses || !reset(pooled.getDriver())) {
+            retire(pooled);
+            return;
+        }
+        idle.offerFirst(pooled);
+        if (closed && idle.remove(pooled)) {
+            // Shut down while the session was being reset.
+            retire(pooled);
+        }
+    }
+
+    /**
+     * Quits every idle session. Sessions still leased are quit as they are released.
+     */
+    public void shutdown() {
+        closed = true;
+        launchers.shutdown();
+        List<PooledDriver> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        drained.forEach(this::retire);
+    }
+
+    public String getBrowser() {
+        return browser;
+    }
+
+    private void retire(PooledDriver pooled) {
+        try {
+            terminator.accept(pooled.getDriver());
+        } catch (Exception e) {
+            // The session is already gone; nothing else to clean up.
+        } finally {
+            capacity.release();
+        }
+        if (!closed && liveSessions() < warmTarget && capacity.tryAcquire()) {
+            launchInBackground();
+        }
+    }
+
+    /**
+     * Checks that the browser still answers commands.
+     */
+    private boolean isHealthy(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Brings the session back to a blank state: replaces every window with one fresh tab on
+     * about:blank (so session storage and history go too), clears the whole cookie jar and wipes
+     * local storage, IndexedDB, cache storage and service workers of every origin the closed
+     * windows navigated to. This needs the Chrome DevTools Protocol; other browsers cannot be
+     * reset completely, so their sessions are retired instead of reused.
+     *
+     * @return true if the session was reset and can be reused
+     */
+    private boolean reset(WebDriver driver) {
+        if (!(driver instanceof HasCdp)) {
+            return false;
+        }
+        HasCdp cdp = (HasCdp) driver;
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            // Opened first, as closing the last window would end the session.
+            driver.switchTo().newWindow(WindowType.TAB);
+            String fresh = driver.getWindowHandle();
+            Set<String> origins = new LinkedHashSet<>();
+            for (String handle : handles) {
+                driver.switchTo().window(handle);
+                origins.addAll(visitedOrigins(cdp));
+                driver.close();
+            }
+            driver.switchTo().window(fresh);
+            cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            for (String origin : origins) {
+                cdp.executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", origin, "storageTypes", "all"));
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the http(s) origins in the current window's navigation history
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<String> visitedOrigins(HasCdp cdp) {
+        Map<String, Object> history = cdp.executeCdpCommand("Page.getNavigationHistory", Map.of());
+        Set<String> origins = new LinkedHashSet<>();
+        for (Map<String, Object> entry : (List<Map<String, Object>>) history.get("entries")) {
+            try {
+                URI uri = URI.create((String) entry.get("url"));
+                if ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) {
+                    origins.add(uri.getScheme() + "://" + uri.getHost() + (uri.getPort() == -1 ? "" : ":" + uri.getPort()));
+                }
+            } catch (IllegalArgumentException e) {
+                // Not a URL a page could have stored data for.
+            }
+        }
+        return origins;
+    }
+
+    /**
+     * A pooled session together with the number of scenarios it has served.
+     */
+    public static class PooledDriver {
+        private final WebDriver driver;
+        private int uses;
+
+        PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public int getUses() {
+            return uses;
+        }
+
+        void incrementUses() {
+            uses++;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.net.PortProber;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.remote.service.DriverFinder;
+import org.openqa.selenium.remote.service.DriverService;
+
+/**
+ * Provides the driver services (chromedriver, geckodriver, msedgedriver) that new sessions talk to.
+ * <p>
+ * Driver binaries are resolved by Selenium Manager once and the paths are kept in a JSON file,
+ * keyed by browser, requested browser version and platform, so later runs skip Selenium Manager
+ * entirely. A cached entry is dropped when the driver is gone or the browser binary has changed
+ * (the browser was updated).
+ * <p>
+ * When sharing is enabled, chromedriver and msedgedriver are started once and every session of
+ * the run attaches to that one process, instead of each session starting and stopping a driver
+ * of its own. geckodriver only serves one session per process, so Firefox still gets a service
+ * per session, started from the cached binary.
+ */
+final class DriverServices {
+    private static final Json JSON = new Json();
+
+    private final Path cacheFile;
+    private final boolean shared;
+    // Guarded by this.
+    private final Map<String, Binaries> binaries;
+    private final Map<String, DriverService> services = new HashMap<>();
+
+    private DriverServices(Path cacheFile, boolean shared, Map<String, Binaries> binaries) {
+        this.cacheFile = cacheFile;
+        this.shared = shared;
+        this.binaries = binaries;
+    }
+
+    /**
+     * Loads the binary cache if it exists.
+     *
+     * @param cacheFile the file resolved driver paths are kept in
+     * @param shared whether sessions should share one driver service per browser where the driver allows it
+     * @return the services
+     */
+    @SuppressWarnings("unchecked")
+    static DriverServices load(Path cacheFile, boolean shared) {
+        Map<String, Binaries> binaries = new TreeMap<>();
+        if (Files.exists(cacheFile)) {
+            try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+                Map<String, Object> raw = JSON.toType(reader, Json.MAP_TYPE);
+                raw.forEach((key, value) -> binaries.put(key, Binaries.fromJson((Map<String, Object>) value)));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable driver binary cache " + cacheFile + ": " + e);
+            }
+        }
+        return new DriverServices(cacheFile, shared, binaries);
+    }
+
+    /**
+     * @param options the options of the new session; the cached browser binary is set on them
+     * @return the service the session should be started with
+     */
+    ChromeDriverService chrome(ChromeOptions options) {
+        return service("chrome", ChromeDriverService.CHROME_DRIVER_EXE_PROPERTY, options, options::setBinary,
+                ChromeDriverService.Builder::new,
+                shared ? SharedChromeService::new : null);
+    }
+
+    /**
+     * @param options the options of the new session; the cached browser binary is set on them
+     * @return the service the session should be started with
+     */
+    EdgeDriverService edge(EdgeOptions options) {
+        return service("edge", EdgeDriverService.EDGE_DRIVER_EXE_PROPERTY, options, options::setBinary,
+                EdgeDriverService.Builder::new,
+                shared ? SharedEdgeService::new : null);
+    }
+
+    /**
+     * @param options the options of the new session; the cached browser binary is set on them
+     * @return a new service for the session, stopped when the session quits
+     */
+    GeckoDriverService firefox(FirefoxOptions options) {
+        return service("firefox", GeckoDriverService.GECKO_DRIVER_EXE_PROPERTY, options, options::setBinary,
+                GeckoDriverService.Builder::new, null);
+    }
+
+    private synchronized <S extends DriverService> S service(String browser, String driverProperty,
+            MutableCapabilities options,
+            Consumer<String> setBinary, Supplier<? extends DriverService.Builder<S, ?>> builder,
+            SharedFactory<? extends S> sharedFactory) {
+        Binaries found = resolve(browser, driverProperty, options, builder);
+        if (found.browserPath != null) {
+            // What the driver constructors do with Selenium Manager's result, which they skip
+            // once the service has an executable.
+            setBinary.accept(found.browserPath);
+            options.setCapability(CapabilityType.BROWSER_VERSION, (Object) null);
+        }
+        if (sharedFactory == null) {
+            DriverService.Builder<S, ?> perSession = builder.get();
+            perSession.usingDriverExecutable(new File(found.driverPath));
+            return perSession.build();
+        }
+        @SuppressWarnings("unchecked")
+        S service = (S) services.get(browser);
+        if (service != null && service.isRunning()) {
+            return service;
+        }
+        try {
+            service = sharedFactory.create(new File(found.driverPath), PortProber.findFreePort());
+            service.sendOutputTo(OutputStream.nullOutputStream());
+            service.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start " + found.driverPath, e);
+        }
+        services.put(browser, service);
+        return service;
+    }
+
+    private <S extends DriverService> Binaries resolve(String browser, String driverProperty, Capabilities options,
+            Supplier<? extends DriverService.Builder<S, ?>> builder) {
+        String configured = System.getProperty(driverProperty);
+        if (configured != null) {
+            // An explicitly configured driver wins over anything cached.
+            return new Binaries(configured, null);
+        }
+        String version = options.getBrowserVersion() == null || options.getBrowserVersion().isEmpty()
+                ? "stable" : options.getBrowserVersion();
+        String key = browser + " " + version + " " + System.getProperty("os.name") + " " + System.getProperty("os.arch");
+        Binaries cached = binaries.get(key);
+        if (cached != null && cached.isCurrent()) {
+            return cached;
+        }
+        DriverFinder finder = new DriverFinder(builder.get().build(), options);
+        Binaries found = new Binaries(finder.getDriverPath(), finder.hasBrowserPath() ? finder.getBrowserPath() : null);
+        binaries.put(key, found);
+        save();
+        return found;
+    }
+
+    private void save() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        binaries.forEach((key, value) -> snapshot.put(key, value.toJson()));
+        try {
+            if (cacheFile.getParent() != null) {
+                Files.createDirectories(cacheFile.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(snapshot));
+            }
+        } catch (IOException e) {
+            // Only a missed shortcut for the next run.
+            System.err.println("Unable to write driver binary cache " + cacheFile + ": " + e);
+        }
+    }
+
+    /**
+     * Stops the shared driver services. Called once at the end of the run, after the sessions are quit.
+     */
+    synchronized void shutdown() {
+        services.values().forEach(service -> ((SharedService) service).shutdown());
+        services.clear();
+    }
+
+    private interface SharedFactory<S extends DriverService> {
+        S create(File executable, int port) throws IOException;
+    }
+
+    private interface SharedService {
+        void shutdown();
+    }
+
+    /**
+     * A driver and browser binary resolved by Selenium Manager.
+     */
+    private static final class Binaries {
+        final String driverPath;
+        final String browserPath;
+        final long browserModified;
+
+        Binaries(String driverPath, String browserPath) {
+            this(driverPath, browserPath, lastModified(browserPath));
+        }
+
+        private Binaries(String driverPath, String browserPath, long browserModified) {
+            this.driverPath = driverPath;
+            this.browserPath = browserPath;
+            this.browserModified = browserModified;
+        }
+
+        /**
+         * @return true if the driver is still there and the browser has not been updated since
+         */
+        boolean isCurrent() {
+            return driverPath != null && Files.isExecutable(Paths.get(driverPath))
+                    && lastModified(browserPath) == browserModified;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("driverPath", driverPath);
+            json.put("browserPath", browserPath);
+            json.put("browserModified", browserModified);
+            return json;
+        }
+
+        static Binaries fromJson(Map<String, Object> json) {
+            Number modified = (Number) json.get("browserModified");
+            return new Binaries((String) json.get("driverPath"), (String) json.get("browserPath"),
+                    modified == null ? 0 : modified.longValue());
+        }
+
+        private static long lastModified(String path) {
+            try {
+                return path == null ? 0 : Files.getLastModifiedTime(Paths.get(path)).toMillis();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * A chromedriver that outlives the sessions: quitting a session no longer stops it, only {@link #shutdown()} does.
+     */
+    private static final class SharedChromeService extends ChromeDriverService implements SharedService {
+        private volatile boolean closing;
+
+        SharedChromeService(File executable, int port) throws IOException {
+            super(executable, port, DEFAULT_TIMEOUT, List.of("--port=" + port), Map.of());
+        }
+
+        @Override
+        public void stop() {
+            if (closing) {
+                super.stop();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            closing = true;
+            stop();
+        }
+    }
+
+    /**
+     * An msedgedriver that outlives the sessions: quitting a session no longer stops it, only {@link #shutdown()} does.
+     */
+    private static final class SharedEdgeService extends EdgeDriverService implements SharedService {
+        private volatile boolean closing;
+
+        SharedEdgeService(File executable, int port) throws IOException {
+            super(executable, port, DEFAULT_TIMEOUT, List.of("--port=" + port), Map.of());
+        }
+
+        @Override
+        public void stop() {
+            if (closing) {
+                super.stop();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            closing = true;
+            stop();
+        }
+    }
+}
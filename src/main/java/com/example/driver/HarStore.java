@@ -0,0 +1,256 @@
+package com.example.driver;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.json.Json;
+
+/**
+ * An HTTP response cache backed by a HAR 1.2 file. Responses recorded by the browser sessions are
+ * indexed in memory by method, URL and request body hash, replayed from memory, and written to the
+ * HAR file when the run ends.
+ */
+public class HarStore {
+    private static final Json JSON = new Json();
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private HarStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the HAR file if it exists, otherwise starts an empty store that will be written there.
+     *
+     * @param file the HAR file
+     * @return the store
+     */
+    @SuppressWarnings("unchecked")
+    public static HarStore load(Path file) {
+        HarStore store = new HarStore(file);
+        if (!Files.exists(file)) {
+            return store;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, Object> har = JSON.toType(reader, Json.MAP_TYPE);
+            Map<String, Object> log = (Map<String, Object>) har.get("log");
+            for (Map<String, Object> raw : (List<Map<String, Object>>) log.get("entries")) {
+                Entry entry = Entry.fromHar(raw);
+                store.entries.put(key(entry.method, entry.url, entry.bodyHash), entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read HAR file " + file, e);
+        }
+        return store;
+    }
+
+    /**
+     * Builds the cache key of a request.
+     *
+     * @param method the HTTP method
+     * @param url the full request URL
+     * @param bodyHash the hash of the request body, see {@link #hash(byte[])}
+     * @return the key
+     */
+    public static String key(String method, String url, String bodyHash) {
+        return method.toUpperCase() + " " + url + " " + bodyHash;
+    }
+
+    /**
+     * @param body the request body, or null if the request has none
+     * @return the hex SHA-256 of the body, or an empty string for no body
+     */
+    public static String hash(byte[] body) {
+        if (body == null || body.length == 0) {
+            return "";
+        }
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(body)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the recorded response for the request, or null if there is none
+     */
+    public Entry find(String method, String url, String bodyHash) {
+        return entries.get(key(method, url, bodyHash));
+    }
+
+    /**
+     * Records a response, replacing any earlier one for the same request.
+     */
+    public void record(Entry entry) {
+        entries.put(key(entry.method, entry.url, entry.bodyHash), entry);
+        modified = true;
+    }
+
+    /**
+     * Writes the store to its HAR file if anything was recorded since it was loaded.
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        List<Object> harEntries = new ArrayList<>();
+        entries.values().forEach(entry -> harEntries.add(entry.toHar()));
+        Map<String, Object> log = new LinkedHashMap<>();
+        log.put("version", "1.2");
+        log.put("creator", Map.of("name", "selenium-parallel-project", "version", "1.0"));
+        log.put("entries", harEntries);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(Map.of("log", log)));
+            }
+            modified = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write HAR file " + file, e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * One recorded request/response pair.
+     */
+    public static class Entry {
+        private final String method;
+        private final String url;
+        private final String bodyHash;
+        private final int status;
+        private final String statusText;
+        private final List<Map.Entry<String, String>> headers;
+        private final byte[] body;
+        private final String mimeType;
+        private final Instant started;
+        private final long timeMillis;
+
+        public Entry(String method, String url, String bodyHash, int status, String statusText,
+                     List<Map.Entry<String, String>> headers, byte[] body, String mimeType,
+                     Instant started, long timeMillis) {
+            this.method = method;
+            this.url = url;
+            this.bodyHash = bodyHash;
+            this.status = status;
+            this.statusText = statusText;
+            this.headers = headers;
+            this.body = body;
+            this.mimeType = mimeType;
+            this.started = started;
+            this.timeMillis = timeMillis;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getStatusText() {
+            return statusText;
+        }
+
+        public List<Map.Entry<String, String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        private Map<String, Object> toHar() {
+            List<Object> harHeaders = new ArrayList<>();
+            headers.forEach(h -> harHeaders.add(Map.of("name", h.getKey(), "value", h.getValue())));
+
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("method", method);
+            request.put("url", url);
+            request.put("httpVersion", "HTTP/1.1");
+            request.put("headers", List.of());
+            request.put("queryString", List.of());
+            request.put("cookies", List.of());
+            request.put("headersSize", -1);
+            request.put("bodySize", -1);
+            // Custom HAR field (underscore-prefixed) used as part of the cache key.
+            request.put("_bodyHash", bodyHash);
+
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("size", body.length);
+            content.put("mimeType", mimeType);
+            content.put("text", Base64.getEncoder().encodeToString(body));
+            content.put("encoding", "base64");
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("status", status);
+            response.put("statusText", statusText);
+            response.put("httpVersion", "HTTP/1.1");
+            response.put("headers", harHeaders);
+            response.put("cookies", List.of());
+            response.put("content", content);
+            response.put("redirectURL", "");
+            response.put("headersSize", -1);
+            response.put("bodySize", body.length);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("startedDateTime", started.toString());
+            entry.put("time", timeMillis);
+            entry.put("request", request);
+            entry.put("response", response);
+            entry.put("cache", Map.of());
+            entry.put("timings", Map.of("send", 0, "wait", timeMillis, "receive", 0));
+            return entry;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Entry fromHar(Map<String, Object> raw) {
+            Map<String, Object> request = (Map<String, Object>) raw.get("request");
+            Map<String, Object> response = (Map<String, Object>) raw.get("response");
+            Map<String, Object> content = (Map<String, Object>) response.get("content");
+
+            List<Map.Entry<String, String>> headers = new ArrayList<>();
+            for (Map<String, Object> h : (List<Map<String, Object>>) response.get("headers")) {
+                headers.add(Map.entry(String.valueOf(h.get("name")), String.valueOf(h.get("value"))));
+            }
+            String text = content.get("text") == null ? "" : String.valueOf(content.get("text"));
+            byte[] body = "base64".equals(content.get("encoding"))
+                    ? Base64.getDecoder().decode(text)
+                    : text.getBytes(StandardCharsets.UTF_8);
+            Object bodyHash = request.get("_bodyHash");
+
+            return new Entry(
+                    String.valueOf(request.get("method")),
+                    String.valueOf(request.get("url")),
+                    bodyHash == null ? "" : String.valueOf(bodyHash),
+                    ((Number) response.get("status")).intValue(),
+                    String.valueOf(response.getOrDefault("statusText", "")),
+                    headers,
+                    body,
+                    String.valueOf(content.getOrDefault("mimeType", "")),
+                    Instant.parse(String.valueOf(raw.get("startedDateTime"))),
+                    ((Number) raw.getOrDefault("time", 0)).longValue());
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package com.example.driver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.bidi.module.Network;
+import org.openqa.selenium.bidi.network.AddInterceptParameters;
+import org.openqa.selenium.bidi.network.BaseParameters;
+import org.openqa.selenium.bidi.network.BeforeRequestSent;
+import org.openqa.selenium.bidi.network.BytesValue;
+import org.openqa.selenium.bidi.network.ContinueRequestParameters;
+import org.openqa.selenium.bidi.network.Header;
+import org.openqa.selenium.bidi.network.InterceptPhase;
+import org.openqa.selenium.bidi.network.ProvideResponseParameters;
+import org.openqa.selenium.bidi.network.RequestData;
+import org.openqa.selenium.bidi.network.ResponseData;
+import org.openqa.selenium.bidi.network.ResponseDetails;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Follows the network activity of one browser session through WebDriver BiDi network events,
+ * blocks requests whose URL matches the configured block list, and records responses into or
+ * replays them from a {@link HarStore}.
+ * Responses are recorded as the browser received them once they complete; the body, which BiDi
+ * does not expose, is read through the Chrome DevTools Protocol on a background thread.
+ * It lives as long as the session, so a pooled session keeps its monitor across scenarios.
+ */
+public class NetworkMonitor implements AutoCloseable {
+    /**
+     * What the monitor does with requests besides blocking them.
+     */
+    public enum HarMode {
+        OFF,
+        RECORD,
+        REPLAY
+    }
+
+    // BiDi does not expose request bodies, so only bodyless requests are recorded or replayed.
+    private static final Set<String> RECORDABLE_METHODS = Set.of("GET", "HEAD");
+    private static final Set<String> HOP_BY_HOP_RESPONSE_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "content-length", "content-encoding");
+
+    // What URLs weighed when they were let through, across all sessions, to estimate what blocking saves.
+    private static final Map<String, Long> RESPONSE_SIZES = new ConcurrentHashMap<>();
+    private static final int MAX_KNOWN_SIZES = 10_000;
+
+    private final Network network;
+    private final HasCdp cdp;
+    // Reads recorded bodies off the BiDi event threads, in the order the responses completed.
+    private final ExecutorService recorder;
+    private final Object lock = new Object();
+    // Keyed by request id and redirect count, as every redirect hop is reported like a new request.
+    private final Set<String> inFlight = new HashSet<>();
+    // Requests whose end was handled before their start; BiDi events arrive on a thread pool.
+    private final Set<String> finishedEarly = new HashSet<>();
+    private long lastActivity = System.nanoTime();
+
+    private final List<String> blockGlobs;
+    private final List<Pattern> blockPatterns;
+    private final List<Pattern> allowPatterns;
+    private final boolean stubBlocked;
+    private volatile boolean blockingEnabled = true;
+    private final HarStore harStore;
+    private volatile HarMode harMode = HarMode.OFF;
+    private String interceptId;
+
+    private final AtomicLong blockedRequests = new AtomicLong();
+    private final Map<String, AtomicLong> blockedByPattern = new ConcurrentHashMap<>();
+    private final AtomicLong blockedBytes = new AtomicLong();
+    private final AtomicLong blockedOfUnknownSize = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong recordedRequests = new AtomicLong();
+    private final AtomicLong replayedRequests = new AtomicLong();
+    private final AtomicLong replayMisses = new AtomicLong();
+    private final AtomicLong recordFailures = new AtomicLong();
+
+    /**
+     * Subscribes to the network events of the given session.
+     *
+     * @param driver a driver with an active BiDi connection
+     * @param block URL patterns to block, where {@code *} matches any characters
+     * @param allow URL patterns that are never blocked, even if they match the block list
+     * @param stubBlocked true to answer blocked requests with an empty response instead of failing them
+     * @param harStore the response cache used to record and replay, or null if there is none
+     */
+    public NetworkMonitor(WebDriver driver, List<String> block, List<String> allow, boolean stubBlocked,
+                          HarStore harStore) {
+        this.network = new Network(driver);
+        this.cdp = driver instanceof HasCdp ? (HasCdp) driver : null;
+        this.recorder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "har-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.blockGlobs = List.copyOf(block);
+        this.blockPatterns = compile(block);
+        this.allowPatterns = compile(allow);
+        this.stubBlocked = stubBlocked;
+        this.harStore = harStore;
+        network.onBeforeRequestSent(this::beforeRequestSent);
+        network.onResponseCompleted(event -> {
+            long bytes = event.getResponseData().getBytesReceived();
+            bytesReceived.addAndGet(bytes);
+            if (bytes > 0 && (RESPONSE_SIZES.size() < MAX_KNOWN_SIZES
+                    || RESPONSE_SIZES.containsKey(event.getRequest().getUrl()))) {
+                RESPONSE_SIZES.put(event.getRequest().getUrl(), bytes);
+            }
+            finished(requestKey(event));
+            if (harMode == HarMode.RECORD && RECORDABLE_METHODS.contains(event.getRequest().getMethod())) {
+                submitRecording(event);
+            }
+        });
+        network.onFetchError(event -> finished(requestKey(event)));
+        updateIntercept();
+    }
+
+    private void beforeRequestSent(BeforeRequestSent event) {
+        String requestId = event.getRequest().getRequestId();
+        started(requestKey(event));
+        if (!event.isBlocked()) {
+            return;
+        }
+        // Intercepted: decide whether the request may leave the browser.
+        RequestData request = event.getRequest();
+        try {
+            String blockedBy = blockingEnabled ? blockingPattern(request.getUrl()) : null;
+            if (blockedBy != null) {
+                countBlocked(blockedBy, request.getUrl());
+                if (stubBlocked) {
+                    network.provideResponse(new ProvideResponseParameters(requestId)
+                            .statusCode(200)
+                            .body(new BytesValue(BytesValue.Type.STRING, "")));
+                } else {
+                    network.failRequest(requestId);
+                }
+            } else if (harMode == HarMode.REPLAY) {
+                replay(request);
+            } else {
+                network.continueRequest(new ContinueRequestParameters(requestId));
+            }
+        } catch (RuntimeException e) {
+            // Never leave the browser hanging on an intercepted request.
+            network.failRequest(requestId);
+        }
+    }
+
+    /**
+     * @return the block list entry that blocks the URL, or null if the URL may load
+     */
+    private String blockingPattern(String url) {
+        if (allowPatterns.stream().anyMatch(p -> p.matcher(url).matches())) {
+            return null;
+        }
+        for (int i = 0; i < blockPatterns.size(); i++) {
+            if (blockPatterns.get(i).matcher(url).matches()) {
+                return blockGlobs.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts a blocked request against its pattern. What it saved is what the same URL weighed the
+     * last time any session loaded it; URLs that were never let through are counted as unknown.
+     */
+    private void countBlocked(String pattern, String url) {
+        blockedRequests.incrementAndGet();
+        blockedByPattern.computeIfAbsent(pattern, p -> new AtomicLong()).incrementAndGet();
+        Long size = RESPONSE_SIZES.get(url);
+        if (size == null) {
+            blockedOfUnknownSize.incrementAndGet();
+        } else {
+            blockedBytes.addAndGet(size);
+        }
+    }
+
+    /**
+     * Serves the request from the HAR store; requests that were never recorded fail, so a replayed
+     * scenario never reaches the network. Requests that may carry a body fail too: their body is not
+     * visible here, so any recording for the URL could answer a request it was not made for.
+     */
+    private void replay(RequestData request) {
+        HarStore.Entry entry = RECORDABLE_METHODS.contains(request.getMethod())
+                ? harStore.find(request.getMethod(), request.getUrl(), HarStore.hash(null))
+                : null;
+        if (entry == null) {
+            replayMisses.incrementAndGet();
+            network.failRequest(request.getRequestId());
+            return;
+        }
+        replayedRequests.incrementAndGet();
+        provide(request.getRequestId(), entry);
+    }
+
+    private void submitRecording(ResponseDetails event) {
+        try {
+            recorder.execute(() -> record(event));
+        } catch (RejectedExecutionException e) {
+            // The monitor is closing with its session.
+        }
+    }
+
+    /**
+     * Stores a response the browser has received. The body is read from the browser's own
+     * network buffer, so it is exactly what the page got, with the browser's cookies and TLS session.
+     */
+    private void record(ResponseDetails event) {
+        RequestData request = event.getRequest();
+        ResponseData response = event.getResponseData();
+        if (!request.getUrl().startsWith("http://") && !request.getUrl().startsWith("https://")) {
+            return;
+        }
+        byte[] body = new byte[0];
+        // Redirects, HEAD requests and bodiless statuses have nothing to read.
+        boolean hasBody = "GET".equals(request.getMethod())
+                && (response.getStatus() < 300 || response.getStatus() >= 400)
+                && response.getStatus() != 204;
+        if (hasBody) {
+            try {
+                Map<String, Object> result = cdp.executeCdpCommand("Network.getResponseBody",
+                        Map.of("requestId", request.getRequestId()));
+                String text = (String) result.get("body");
+                body = Boolean.TRUE.equals(result.get("base64Encoded"))
+                        ? Base64.getDecoder().decode(text)
+                        : text.getBytes(StandardCharsets.UTF_8);
+            } catch (WebDriverException | IllegalArgumentException e) {
+                // Evicted from the browser's buffer, or the tab is already gone.
+                recordFailures.incrementAndGet();
+                return;
+            }
+        }
+
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        for (Header header : response.getHeaders()) {
+            if (!HOP_BY_HOP_RESPONSE_HEADERS.contains(header.getName().toLowerCase())) {
+                headers.add(Map.entry(header.getName(), header.getValue().getValue()));
+            }
+        }
+        long timeMillis = 0;
+        if (request.getTimings() != null) {
+            timeMillis = Math.max(0, Math.round(request.getTimings().getResponseEnd() - request.getTimings().getRequestTime()));
+        }
+        harStore.record(new HarStore.Entry(
+                request.getMethod(),
+                request.getUrl(),
+                HarStore.hash(null),
+                response.getStatus(),
+                response.getStatusText() == null ? "" : response.getStatusText(),
+                headers,
+                body,
+                response.getMimeType() == null ? "" : response.getMimeType(),
+                Instant.ofEpochMilli(event.getTimestamp()).minusMillis(timeMillis),
+                timeMillis));
+        recordedRequests.incrementAndGet();
+    }
+
+    /**
+     * Waits until the responses that completed so far are recorded, so a scenario's recordings are
+     * complete before its session is reset.
+     *
+     * @param timeout the maximum time to wait
+     */
+    public void awaitRecordings(Duration timeout) {
+        try {
+            recorder.submit(() -> { }).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | ExecutionException | TimeoutException e) {
+            // Closed, or still busy; the remaining responses are recorded when the thread gets to them.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void provide(String requestId, HarStore.Entry entry) {
+        List<Header> headers = new ArrayList<>();
+        entry.getHeaders().forEach(h ->
+                headers.add(new Header(h.getKey(), new BytesValue(BytesValue.Type.STRING, h.getValue()))));
+        ProvideResponseParameters response = new ProvideResponseParameters(requestId)
+                .statusCode(entry.getStatus())
+                .headers(headers)
+                .body(new BytesValue(BytesValue.Type.BASE64, Base64.getEncoder().encodeToString(entry.getBody())));
+        if (!entry.getStatusText().isEmpty()) {
+            response.reasonPhrase(entry.getStatusText());
+        }
+        network.provideResponse(response);
+    }
+
+    /**
+     * Turns request blocking on or off, for example for a scenario tagged to see all traffic.
+     *
+     * @param enabled whether requests matching the block list are blocked
+     */
+    public void setBlockingEnabled(boolean enabled) {
+        blockingEnabled = enabled;
+        updateIntercept();
+    }
+
+    /**
+     * Switches between recording responses into the HAR store, replaying them from it, or neither.
+     * Has no effect when the monitor was created without a HAR store.
+     *
+     * @param mode the record/replay mode for the requests that follow
+     * @throws IllegalStateException when recording is asked of a browser without the DevTools Protocol
+     */
+    public void setHarMode(HarMode mode) {
+        HarMode effective = harStore == null ? HarMode.OFF : mode;
+        if (effective == HarMode.RECORD) {
+            if (cdp == null) {
+                throw new IllegalStateException(
+                        "HAR recording reads response bodies through the Chrome DevTools Protocol; use Chrome or Edge");
+            }
+            // Per tab, and a reset session is on a fresh tab.
+            cdp.executeCdpCommand("Network.enable", Map.of());
+        }
+        harMode = effective;
+        updateIntercept();
+    }
+
+    /**
+     * Blocking and replaying rely on intercepting every request, so the intercept is only
+     * installed while one of them is active. Recording never holds a request up.
+     */
+    private synchronized void updateIntercept() {
+        boolean needed = (blockingEnabled && !blockPatterns.isEmpty()) || harMode == HarMode.REPLAY;
+        if (needed && interceptId == null) {
+            interceptId = network.addIntercept(new AddInterceptParameters(InterceptPhase.BEFORE_REQUEST_SENT));
+        } else if (!needed && interceptId != null) {
+            network.removeIntercept(interceptId);
+            interceptId = null;
+        }
+    }
+
+    /**
+     * Clears the request and byte counters and forgets the requests in flight, typically when a
+     * scenario leases the session after it was reset to about:blank.
+     */
+    public void reset() {
+        synchronized (lock) {
+            inFlight.clear();
+            finishedEarly.clear();
+            lastActivity = System.nanoTime();
+            lock.notifyAll();
+        }
+        blockedRequests.set(0);
+        blockedByPattern.clear();
+        blockedBytes.set(0);
+        blockedOfUnknownSize.set(0);
+        bytesReceived.set(0);
+        recordedRequests.set(0);
+        replayedRequests.set(0);
+        replayMisses.set(0);
+        recordFailures.set(0);
+    }
+
+    /**
+     * @return the number of responses recorded into the HAR store since the counters were last reset
+     */
+    public long getRecordedRequests() {
+        return recordedRequests.get();
+    }
+
+    /**
+     * @return the number of responses that could not be recorded since the counters were last reset,
+     *         because the browser no longer had their body
+     */
+    public long getRecordFailures() {
+        return recordFailures.get();
+    }
+
+    /**
+     * @return the number of responses served from the HAR store since the counters were last reset
+     */
+    public long getReplayedRequests() {
+        return replayedRequests.get();
+    }
+
+    /**
+     * @return the number of replayed requests that had no recording, or were not GET or HEAD, since
+     *         the counters were last reset
+     */
+    public long getReplayMisses() {
+        return replayMisses.get();
+    }
+
+    /**
+     * @return the number of requests blocked since the counters were last reset
+     */
+    public long getBlockedRequests() {
+        return blockedRequests.get();
+    }
+
+    /**
+     * @return the number of requests each block list pattern blocked since the counters were last
+     *         reset, in block list order
+     */
+    public Map<String, Long> getBlockedByPattern() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String glob : blockGlobs) {
+            AtomicLong count = blockedByPattern.get(glob);
+            if (count != null) {
+                counts.put(glob, count.get());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the bytes the blocked requests would have transferred, as far as their size is known
+     *         from earlier unblocked loads, since the counters were last reset
+     */
+    public long getBlockedBytes() {
+        return blockedBytes.get();
+    }
+
+    /**
+     * @return the number of blocked requests whose size is not known, so they are missing from
+     *         {@link #getBlockedBytes()}
+     */
+    public long getBlockedOfUnknownSize() {
+        return blockedOfUnknownSize.get();
+    }
+
+    /**
+     * @return the bytes received by requests that were let through since the counters were last reset
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Compiles glob-style URL patterns, where {@code *} matches any sequence of characters.
+     */
+    static List<Pattern> compile(List<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            String[] parts = glob.trim().split("\\*", -1);
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                if (!parts[i].isEmpty()) {
+                    regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+        return patterns;
+    }
+
+    private static String requestKey(BaseParameters event) {
+        return event.getRequest().getRequestId() + "#" + event.getRedirectCount();
+    }
+
+    private void started(String key) {
+        synchronized (lock) {
+            if (!finishedEarly.remove(key)) {
+                inFlight.add(key);
+            }
+            lastActivity = System.nanoTime();
+        }
+    }
+
+    private void finished(String key) {
+        synchronized (lock) {
+            if (!inFlight.remove(key)) {
+                finishedEarly.add(key);
+            }
+            lastActivity = System.nanoTime();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until no request has been in flight for the quiet window, or the timeout elapses.
+     *
+     * @param quiet how long the network must stay idle
+     * @param timeout the maximum time to wait
+     * @return true if the network went idle, false if the timeout elapsed first
+     */
+    public boolean awaitIdle(Duration quiet, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lock) {
+            while (true) {
+                long now = System.nanoTime();
+                long idleUntil = inFlight.isEmpty() ? lastActivity + quiet.toNanos() : deadline;
+                if (inFlight.isEmpty() && now >= idleUntil) {
+                    return true;
+                }
+                if (now >= deadline) {
+                    return false;
+                }
+                try {
+                    long waitNanos = Math.min(idleUntil, deadline) - now;
+                    lock.wait(Math.max(1, waitNanos / 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlightCount() {
+        synchronized (lock) {
+            return inFlight.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        recorder.shutdownNow();
+        network.close();
+    }
+}
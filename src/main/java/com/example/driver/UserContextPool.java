@@ -0,0 +1,463 @@
+package com.example.driver;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.bidi.Command;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContext;
+import org.openqa.selenium.bidi.browsingcontext.CreateContextParameters;
+import org.openqa.selenium.bidi.browsingcontext.ReadinessState;
+import org.openqa.selenium.bidi.module.Browser;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+/**
+ * Runs several scenarios in one browser process. Each scenario leases a WebDriver BiDi user
+ * context (its own cookie jar, storage and cache) with a tab of its own, and gets a WebDriver
+ * that only ever acts on that tab.
+ * <p>
+ * Classic WebDriver commands act on the session's current window and frame, so the views of one
+ * browser take turns: every command locks the browser and, if another view used it last, switches
+ * to the caller's tab and back into the frame the caller had switched to. Navigation and
+ * screenshots of the tab go over BiDi instead and do not hold the lock. Scenarios in a shared
+ * browser should stay in their own tab; windows they open are visible to them, but so are the
+ * popups of the other scenarios in the same browser.
+ * <p>
+ * Each context downloads into a directory of its own, set with BiDi {@code browser.setDownloadBehavior}.
+ * Browsers without that command leave the contexts without a download directory, so a scenario
+ * cannot pick up another one's download.
+ */
+public class UserContextPool {
+    private final String browser;
+    private final Supplier<WebDriver> launcher;
+    private final Consumer<WebDriver> terminator;
+    private final int contextsPerBrowser;
+    private final String downloadRoot;
+    // Guarded by this.
+    private final List<Host> hosts = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param browser the browser type this pool serves, used for diagnostics
+     * @param launcher starts a browser with BiDi enabled when every running one is full
+     * @param terminator quits a browser at shutdown or after it broke
+     * @param contextsPerBrowser the number of scenarios one browser hosts at the same time
+     * @param downloadRoot the directory the contexts' download directories are created in
+     */
+    public UserContextPool(String browser, Supplier<WebDriver> launcher, Consumer<WebDriver> terminator,
+                           int contextsPerBrowser, String downloadRoot) {
+        this.browser = browser;
+        this.launcher = launcher;
+        this.terminator = terminator;
+        this.contextsPerBrowser = contextsPerBrowser;
+        this.downloadRoot = downloadRoot;
+    }
+
+    /**
+     * Opens a fresh user context in a browser with room for it, starting a browser if all are full.
+     *
+     * @return the context, which belongs exclusively to the caller until it is released
+     */
+    public UserContext lease() {
+        Host host;
+        synchronized (this) {
+            host = hosts.stream()
+                    .filter(candidate -> !candidate.broken && candidate.slotsTaken < contextsPerBrowser)
+                    .findFirst()
+                    .orElse(null);
+            if (host == null) {
+                host = new Host();
+                hosts.add(host);
+            }
+            host.slotsTaken++;
+        }
+        try {
+            return host.open();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                host.broken = true;
+            }
+            release(host);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes a user context with all its tabs, so its cookies and storage are gone.
+     *
+     * @param context the context to close
+     */
+    public void release(UserContext context) {
+        try {
+            context.host.browserModule().removeUserContext(context.id);
+        } catch (Exception e) {
+            // A browser that cannot close a context is not trusted with new ones.
+            synchronized (this) {
+                context.host.broken = true;
+            }
+        }
+        context.host.forget(context);
+        if (context.downloads != null) {
+            DownloadDirectories.delete(context.downloads);
+        }
+        release(context.host);
+    }
+
+    private void release(Host host) {
+        boolean quit;
+        synchronized (this) {
+            host.slotsTaken--;
+            quit = host.slotsTaken == 0 && (closed || host.broken);
+            if (quit) {
+                hosts.remove(host);
+            }
+        }
+        if (quit) {
+            host.quit();
+        }
+    }
+
+    /**
+     * Quits every browser without leased contexts. Browsers still in use are quit as their
+     * last context is released.
+     */
+    public void shutdown() {
+        List<Host> idle = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Host host : hosts) {
+                if (host.slotsTaken == 0) {
+                    idle.add(host);
+                }
+            }
+            hosts.removeAll(idle);
+        }
+        idle.forEach(Host::quit);
+    }
+
+    public String getBrowser() {
+        return browser;
+    }
+
+    /**
+     * One browser process and the contexts it hosts.
+     */
+    private final class Host {
+        // Fair, so a scenario issuing many commands cannot starve the others.
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Set<String> contextWindows = new LinkedHashSet<>();
+        private WebDriver driver;
+        private Browser browserModule;
+        // Cleared once the browser rejects per-context download directories.
+        private volatile boolean downloadsPerContext = true;
+        private String focusedWindow;
+        // Guarded by the pool.
+        private int slotsTaken;
+        private boolean broken;
+
+        /**
+         * Starts the browser on first use; callers that arrive meanwhile wait for it.
+         */
+        private synchronized WebDriver driver() {
+            if (driver == null) {
+                WebDriver launched = launcher.get();
+                if (!(launched instanceof HasBiDi) || ((HasBiDi) launched).maybeGetBiDi().isEmpty()) {
+                    terminator.accept(launched);
+                    throw new IllegalStateException("User contexts need WebDriver BiDi, which the "
+                            + browser + " session does not offer");
+                }
+                driver = launched;
+            }
+            return driver;
+        }
+
+        private synchronized Browser browserModule() {
+            if (browserModule == null) {
+                browserModule = new Browser(driver());
+            }
+            return browserModule;
+        }
+
+        private UserContext open() {
+            String id = browserModule().createUserContext();
+            BrowsingContext tab = new BrowsingContext(driver(),
+                    new CreateContextParameters(WindowType.TAB).userContext(id));
+            UserContext context = new UserContext(this, id, tab, downloadDirectory(id));
+            synchronized (contextWindows) {
+                contextWindows.add(tab.getId());
+            }
+            context.driver = new ContextDecorator(context).decorate(driver());
+            return context;
+        }
+
+        /**
+         * Sends the context's downloads to a directory of its own.
+         *
+         * @return the directory, or null if the browser cannot set one per context
+         */
+        private Path downloadDirectory(String userContextId) {
+            if (!downloadsPerContext) {
+                return null;
+            }
+            Path directory = DownloadDirectories.create(downloadRoot);
+            try {
+                ((HasBiDi) driver()).getBiDi().send(new Command<>("browser.setDownloadBehavior", Map.of(
+                        "downloadBehavior", Map.of("type", "allowed", "destinationFolder", directory.toString()),
+                        "userContexts", List.of(userContextId)), Map.class));
+                return directory;
+            } catch (WebDriverException e) {
+                downloadsPerContext = false;
+                DownloadDirectories.delete(directory);
+                return null;
+            }
+        }
+
+        private void forget(UserContext context) {
+            synchronized (contextWindows) {
+                contextWindows.remove(context.tab.getId());
+            }
+            lock.lock();
+            try {
+                if (context.window.equals(focusedWindow)) {
+                    focusedWindow = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the windows of the browser that do not belong to the given context: the browser's
+         *         own first tab and the tabs of the other contexts
+         */
+        private Set<String> foreignWindows(UserContext context) {
+            Set<String> foreign;
+            synchronized (contextWindows) {
+                foreign = new LinkedHashSet<>(contextWindows);
+            }
+            foreign.remove(context.tab.getId());
+            return foreign;
+        }
+
+        private void quit() {
+            WebDriver launched;
+            synchronized (this) {
+                launched = driver;
+            }
+            if (launched != null) {
+                try {
+                    terminator.accept(launched);
+                } catch (Exception e) {
+                    // The browser is already gone.
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the shared session act on one context's tab for every call made through the view.
+     */
+    private static final class ContextDecorator extends WebDriverDecorator<WebDriver> {
+        private final UserContext context;
+
+        private ContextDecorator(UserContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || method.getName().startsWith("getWrapped")) {
+                return super.call(target, method, args);
+            }
+            Object original = target.getOriginal();
+            if (original instanceof WebDriver && method.getName().equals("quit")) {
+                // The browser is shared; the context is closed when it is released.
+                return null;
+            }
+            if (original instanceof WebDriver.Navigation && navigate(method, args)) {
+                return null;
+            }
+            if (original instanceof WebDriver && method.getName().equals("getScreenshotAs")
+                    && context.window.equals(context.tab.getId())) {
+                // Classic screenshots show the top-level viewport too, so the frame does not matter.
+                return ((OutputType<?>) args[0]).convertFromBase64Png(context.tab.captureScreenshot());
+            }
+            Host host = context.host;
+            host.lock.lock();
+            try {
+                focus(host);
+                Object result = super.call(target, method, args);
+                if (original instanceof WebDriver.TargetLocator) {
+                    trackSwitch(host, target, method, args);
+                } else if (original instanceof WebDriver.Navigation) {
+                    // A navigation takes the window back to its top-level document.
+                    context.frames.clear();
+                } else if (original instanceof WebDriver && method.getName().equals("get")) {
+                    context.frames.clear();
+                } else if (original instanceof WebDriver && method.getName().equals("getWindowHandles")) {
+                    Set<String> handles = new LinkedHashSet<>(castHandles(result));
+                    handles.removeAll(host.foreignWindows(context));
+                    result = handles;
+                }
+                return result;
+            } finally {
+                host.lock.unlock();
+            }
+        }
+
+        /**
+         * Puts the browser on the context's window and frame, unless the context used it last.
+         * Switching windows leaves any frame, so the context's frame switches are repeated.
+         * Called with the browser's lock held.
+         */
+        private void focus(Host host) throws Throwable {
+            if (context.window.equals(host.focusedWindow)) {
+                return;
+            }
+            host.focusedWindow = null;
+            host.driver.switchTo().window(context.window);
+            try {
+                for (FrameSwitch frame : context.frames) {
+                    super.call(frame.target, frame.method, frame.args);
+                }
+            } catch (Throwable t) {
+                // The frame is gone with its document; the context is left on the top-level one.
+                context.frames.clear();
+                host.focusedWindow = context.window;
+                throw t;
+            }
+            host.focusedWindow = context.window;
+        }
+
+        /**
+         * Keeps track of the window and frame a switch the scenario made has left it in.
+         */
+        private void trackSwitch(Host host, Decorated<?> target, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "frame":
+                    context.frames.add(new FrameSwitch(target, method, args));
+                    break;
+                case "parentFrame":
+                    if (!context.frames.isEmpty()) {
+                        context.frames.remove(context.frames.size() - 1);
+                    }
+                    break;
+                case "defaultContent":
+                    context.frames.clear();
+                    break;
+                case "window":
+                case "newWindow":
+                    // The scenario moved to another of its windows, at its top-level document.
+                    context.window = host.driver.getWindowHandle();
+                    context.frames.clear();
+                    host.focusedWindow = context.window;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Set<String> castHandles(Object result) {
+            return (Set<String>) result;
+        }
+
+        /**
+         * Loads a page in the context's tab over BiDi, so the shared session is free for the
+         * other contexts while it loads.
+         *
+         * @return false if the call is not a navigation that can go over BiDi
+         */
+        private boolean navigate(Method method, Object[] args) {
+            if (!context.window.equals(context.tab.getId())) {
+                return false;
+            }
+            if (method.getName().equals("to")) {
+                String url = args[0] instanceof URL ? args[0].toString() : (String) args[0];
+                context.tab.navigate(url, ReadinessState.COMPLETE);
+            } else if (method.getName().equals("refresh")) {
+                context.tab.reload(ReadinessState.COMPLETE);
+            } else {
+                return false;
+            }
+            // Like a classic navigation, this leaves the context on the top-level document.
+            context.host.lock.lock();
+            try {
+                context.frames.clear();
+                if (context.window.equals(context.host.focusedWindow)) {
+                    context.host.focusedWindow = null;
+                }
+            } finally {
+                context.host.lock.unlock();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A frame switch a scenario made, repeated when its context gets the browser back.
+     */
+    private static final class FrameSwitch {
+        private final Decorated<?> target;
+        private final Method method;
+        private final Object[] args;
+
+        private FrameSwitch(Decorated<?> target, Method method, Object[] args) {
+            this.target = target;
+            this.method = method;
+            this.args = args;
+        }
+    }
+
+    /**
+     * A user context leased to one scenario.
+     */
+    public static final class UserContext {
+        private final Host host;
+        private final String id;
+        private final BrowsingContext tab;
+        private final Path downloads;
+        private volatile String window;
+        // The frames switched into, outermost first, in the current window. Guarded by the host's lock.
+        private final List<FrameSwitch> frames = new ArrayList<>();
+        private WebDriver driver;
+
+        private UserContext(Host host, String id, BrowsingContext tab, Path downloads) {
+            this.host = host;
+            this.id = id;
+            this.tab = tab;
+            this.downloads = downloads;
+            this.window = tab.getId();
+        }
+
+        /**
+         * @return a WebDriver that acts on this context's tab only
+         */
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        /**
+         * @return the directory this context's downloads are saved to, or null if the browser
+         *         cannot give each context its own
+         */
+        Path getDownloadDirectory() {
+            return downloads;
+        }
+    }
+}
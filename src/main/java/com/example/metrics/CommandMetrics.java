@@ -0,0 +1,382 @@
+package com.example.metrics;
+
+import com.example.config.ConfigReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+
+/**
+ * Latency metrics for UI actions and the WebDriver commands they issue.
+ * <p>
+ * Every {@code UiActions} call opens a {@link Scope} tagged with the action, the locator and the
+ * calling page class; the decorated driver (see {@link #instrument}) times each WebDriver command
+ * and attributes it to the open scope. Time spent inside explicit waits is recorded separately
+ * from time spent executing commands. Each thread records into its own histograms, which are only
+ * combined when the metrics are exported at the end of the run.
+ */
+public final class CommandMetrics {
+    private static final boolean ENABLED = ConfigReader.isMetricsEnabled();
+    private static final Json JSON = new Json();
+    private static final StackWalker STACK = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private static final List<Map<Series, LatencyHistogram>> allThreads = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<Map<Series, LatencyHistogram>> histograms = ThreadLocal.withInitial(() -> {
+        Map<Series, LatencyHistogram> own = new ConcurrentHashMap<>();
+        allThreads.add(own);
+        return own;
+    });
+    private static final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+    private CommandMetrics() {
+    }
+
+    /**
+     * @return whether {@code metrics.enabled} is set
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return whether sessions need to be instrumented, for metrics or for the {@link RoundTripTracer}
+     */
+    public static boolean isInstrumenting() {
+        return ENABLED || RoundTripTracer.isEnabled();
+    }
+
+    /**
+     * Wraps a driver so that every command it executes is timed.
+     *
+     * @param driver the driver to wrap
+     * @return the instrumented driver; it keeps all interfaces (BiDi, CDP, screenshots) of the original
+     */
+    public static WebDriver instrument(WebDriver driver) {
+        return new EventFiringDecorator<>(new MetricsListener()).decorate(driver);
+    }
+
+    /**
+     * Opens the scope of a UI action on the current thread. Actions called from within another
+     * action are counted as part of the outer one.
+     *
+     * @param action the name of the action
+     * @param locator the element the action works on, or null
+     * @return the scope; close it when the action ends
+     */
+    public static Scope startAction(String action, By locator) {
+        if (!ENABLED || currentScope.get() != null) {
+            return Scope.NONE;
+        }
+        Scope scope = new Scope(action, locator == null ? "" : locator.toString(), callerName());
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Marks the start of an explicit wait within the current action.
+     */
+    public static void beginWait() {
+        Scope scope = currentScope.get();
+        if (scope != null && scope.waitDepth++ == 0) {
+            scope.waitStarted = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the end of an explicit wait within the current action.
+     */
+    public static void endWait() {
+        Scope scope = currentScope.get();
+        if (scope != null && --scope.waitDepth == 0) {
+            scope.waitNanos += System.nanoTime() - scope.waitStarted;
+        }
+    }
+
+    /**
+     * Records a WebDriver command against the current action, if any.
+     *
+     * @param command the command, e.g. {@code WebElement.click}
+     * @param locator the locator passed to the command, or null
+     * @param nanos how long the command took
+     */
+    static void recordCommand(String command, By locator, long nanos) {
+        if (!ENABLED) {
+            return;
+        }
+        Scope scope = currentScope.get();
+        String phase = scope != null && scope.waitDepth > 0 ? "wait" : "command";
+        String target = locator != null ? locator.toString() : scope != null ? scope.locator : "";
+        String page = scope != null ? scope.page : "";
+        record(new Series("webdriver", command, phase, target, page), nanos);
+    }
+
+    private static void record(Series series, long nanos) {
+        histograms.get().computeIfAbsent(series, s -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * The first class up the stack outside the actions and metrics code: normally a page object,
+     * or a step definition that uses UiActions directly.
+     */
+    private static String callerName() {
+        return STACK.walk(frames -> frames
+                .map(StackWalker.StackFrame::getDeclaringClass)
+                .filter(type -> !type.getName().startsWith("com.example.actions.")
+                        && !type.getName().startsWith("com.example.metrics."))
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(""));
+    }
+
+    /**
+     * @return the histograms of all threads, combined per series
+     */
+    static Map<Series, LatencyHistogram> snapshot() {
+        Map<Series, LatencyHistogram> combined = new HashMap<>();
+        for (Map<Series, LatencyHistogram> own : allThreads) {
+            own.forEach((series, histogram) ->
+                    combined.computeIfAbsent(series, s -> new LatencyHistogram()).add(histogram));
+        }
+        return combined;
+    }
+
+    /**
+     * Writes {@code metrics.json} and the Prometheus text file {@code metrics.prom}.
+     *
+     * @param directory the directory to write to
+     */
+    public static void export(Path directory) {
+        if (!ENABLED) {
+            return;
+        }
+        Map<Series, LatencyHistogram> snapshot = snapshot();
+        List<Series> ordered = new ArrayList<>(snapshot.keySet());
+        ordered.sort(Comparator.comparing(Series::toString));
+
+        List<Map<String, Object>> json = new ArrayList<>();
+        StringBuilder prometheus = new StringBuilder();
+        prometheus.append("# HELP ui_action_duration_seconds Duration of UiActions calls, split into wait and command time\n")
+                .append("# TYPE ui_action_duration_seconds histogram\n");
+        appendPrometheus(prometheus, "ui_action_duration_seconds", "action", ordered, snapshot);
+        prometheus.append("# HELP webdriver_command_duration_seconds Duration of WebDriver commands\n")
+                .append("# TYPE webdriver_command_duration_seconds histogram\n");
+        appendPrometheus(prometheus, "webdriver_command_duration_seconds", "webdriver", ordered, snapshot);
+
+        for (Series series : ordered) {
+            LatencyHistogram histogram = snapshot.get(series);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("kind", series.kind);
+            entry.put("name", series.name);
+            entry.put("phase", series.phase);
+            entry.put("locator", series.locator);
+            entry.put("page", series.page);
+            entry.put("count", histogram.getCount());
+            entry.put("sumMillis", histogram.getSumMillis());
+            entry.put("p50Millis", histogram.getPercentileMillis(50));
+            entry.put("p95Millis", histogram.getPercentileMillis(95));
+            entry.put("p99Millis", histogram.getPercentileMillis(99));
+            entry.put("maxMillis", histogram.getMaxMillis());
+            json.add(entry);
+        }
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("metrics.json"), StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(json));
+            }
+            Files.write(directory.resolve("metrics.prom"), prometheus.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write metrics to " + directory, e);
+        }
+    }
+
+    private static void appendPrometheus(StringBuilder out, String metric, String kind, List<Series> ordered,
+                                         Map<Series, LatencyHistogram> snapshot) {
+        for (Series series : ordered) {
+            if (!series.kind.equals(kind)) {
+                continue;
+            }
+            LatencyHistogram histogram = snapshot.get(series);
+            String labels = "name=\"" + escapeLabel(series.name) + "\",phase=\"" + series.phase
+                    + "\",locator=\"" + escapeLabel(series.locator) + "\",page=\"" + escapeLabel(series.page) + "\"";
+            long[] cumulative = histogram.getCumulativeCounts();
+            for (int i = 0; i < cumulative.length; i++) {
+                out.append(metric).append("_bucket{").append(labels).append(",le=\"")
+                        .append(formatSeconds(LatencyHistogram.BOUNDS_MILLIS[i] / 1000)).append("\"} ")
+                        .append(cumulative[i]).append('\n');
+            }
+            out.append(metric).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                    .append(histogram.getCount()).append('\n');
+            out.append(metric).append("_sum{").append(labels).append("} ")
+                    .append(formatSeconds(histogram.getSumMillis() / 1000)).append('\n');
+            out.append(metric).append("_count{").append(labels).append("} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+    }
+
+    /**
+     * Builds the HTML tables of the slowest locators and WebDriver commands for the report.
+     *
+     * @param limit the number of rows per table
+     * @return the HTML, or null if nothing was recorded
+     */
+    public static String summaryHtml(int limit) {
+        Map<Series, LatencyHistogram> snapshot = snapshot();
+        if (!ENABLED || snapshot.isEmpty()) {
+            return null;
+        }
+        List<Map.Entry<Series, LatencyHistogram>> actions = snapshot.entrySet().stream()
+                .filter(entry -> entry.getKey().kind.equals("action") && entry.getKey().phase.equals("total"))
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<Series, LatencyHistogram> entry) -> entry.getValue().getPercentileMillis(95)).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        Map<String, LatencyHistogram> commands = new HashMap<>();
+        snapshot.forEach((series, histogram) -> {
+            if (series.kind.equals("webdriver")) {
+                commands.computeIfAbsent(series.name, name -> new LatencyHistogram()).add(histogram);
+            }
+        });
+        List<Map.Entry<String, LatencyHistogram>> slowestCommands = commands.entrySet().stream()
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<String, LatencyHistogram> entry) -> entry.getValue().getSumMillis()).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+
+        StringBuilder html = new StringBuilder("<b>Slowest locators (by p95)</b>")
+                .append("<table class='table table-sm'><tr><th>Action</th><th>Locator</th><th>Page</th>")
+                .append("<th>Calls</th><th>p50 ms</th><th>p95 ms</th><th>Max ms</th><th>Waiting</th></tr>");
+        for (Map.Entry<Series, LatencyHistogram> entry : actions) {
+            Series series = entry.getKey();
+            LatencyHistogram total = entry.getValue();
+            LatencyHistogram wait = snapshot.get(new Series("action", series.name, "wait", series.locator, series.page));
+            double waitShare = wait == null || total.getSumMillis() == 0 ? 0 : wait.getSumMillis() / total.getSumMillis();
+            html.append("<tr><td>").append(escapeHtml(series.name))
+                    .append("</td><td>").append(escapeHtml(series.locator))
+                    .append("</td><td>").append(escapeHtml(series.page))
+                    .append("</td><td>").append(total.getCount())
+                    .append("</td><td>").append(formatMillis(total.getPercentileMillis(50)))
+                    .append("</td><td>").append(formatMillis(total.getPercentileMillis(95)))
+                    .append("</td><td>").append(formatMillis(total.getMaxMillis()))
+                    .append("</td><td>").append(Math.round(waitShare * 100)).append("%</td></tr>");
+        }
+        html.append("</table><b>Slowest WebDriver commands (by total time)</b>")
+                .append("<table class='table table-sm'><tr><th>Command</th><th>Calls</th><th>Total ms</th>")
+                .append("<th>p50 ms</th><th>p95 ms</th><th>Max ms</th></tr>");
+        for (Map.Entry<String, LatencyHistogram> entry : slowestCommands) {
+            LatencyHistogram histogram = entry.getValue();
+            html.append("<tr><td>").append(escapeHtml(entry.getKey()))
+                    .append("</td><td>").append(histogram.getCount())
+                    .append("</td><td>").append(formatMillis(histogram.getSumMillis()))
+                    .append("</td><td>").append(formatMillis(histogram.getPercentileMillis(50)))
+                    .append("</td><td>").append(formatMillis(histogram.getPercentileMillis(95)))
+                    .append("</td><td>").append(formatMillis(histogram.getMaxMillis())).append("</td></tr>");
+        }
+        return html.append("</table>").toString();
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format(Locale.ROOT, "%.1f", millis);
+    }
+
+    private static String formatSeconds(double seconds) {
+        return String.format(Locale.ROOT, "%.6f", seconds).replaceAll("0+$", "").replaceAll("\\.$", "");
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;");
+    }
+
+    /**
+     * The scope of one UI action. Closing it records the action's total, wait and command time.
+     */
+    public static final class Scope implements AutoCloseable {
+        static final Scope NONE = new Scope(null, "", "");
+
+        private final String action;
+        private final String locator;
+        private final String page;
+        private final long started = System.nanoTime();
+        private int waitDepth;
+        private long waitStarted;
+        private long waitNanos;
+
+        private Scope(String action, String locator, String page) {
+            this.action = action;
+            this.locator = locator;
+            this.page = page;
+        }
+
+        @Override
+        public void close() {
+            if (this == NONE) {
+                return;
+            }
+            currentScope.remove();
+            long total = System.nanoTime() - started;
+            record(new Series("action", action, "total", locator, page), total);
+            record(new Series("action", action, "wait", locator, page), waitNanos);
+            record(new Series("action", action, "command", locator, page), total - waitNanos);
+        }
+    }
+
+    /**
+     * A labelled series of latencies.
+     */
+    static final class Series {
+        final String kind;
+        final String name;
+        final String phase;
+        final String locator;
+        final String page;
+
+        Series(String kind, String name, String phase, String locator, String page) {
+            this.kind = kind;
+            this.name = name;
+            this.phase = phase;
+            this.locator = locator;
+            this.page = page;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Series)) {
+                return false;
+            }
+            Series series = (Series) other;
+            return kind.equals(series.kind) && name.equals(series.name) && phase.equals(series.phase)
+                    && locator.equals(series.locator) && page.equals(series.page);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, name, phase, locator, page);
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + name + " " + phase + " " + locator + " " + page;
+        }
+    }
+}
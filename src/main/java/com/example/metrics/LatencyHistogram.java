@@ -0,0 +1,101 @@
+package com.example.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-bucket latency histogram. Recording is a short array scan and a few additions, so it
+ * can sit on every WebDriver command. The bucket bounds follow a 1-2.5-5 series from 0.1 ms to
+ * 60 s, which also serve as the {@code le} labels of the Prometheus export.
+ */
+public class LatencyHistogram {
+    static final double[] BOUNDS_MILLIS = {
+        0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 60000
+    };
+
+    // One count per bound, plus one for everything above the last bound.
+    private final long[] counts = new long[BOUNDS_MILLIS.length + 1];
+    private long count;
+    private long sumNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos) {
+        double millis = nanos / 1_000_000.0;
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Adds the samples of another histogram to this one.
+     */
+    public synchronized void add(LatencyHistogram other) {
+        LatencyHistogram copy = other.copy();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += copy.counts[i];
+        }
+        count += copy.count;
+        sumNanos += copy.sumNanos;
+        maxNanos = Math.max(maxNanos, copy.maxNanos);
+    }
+
+    public synchronized LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.count = count;
+        copy.sumNanos = sumNanos;
+        copy.maxNanos = maxNanos;
+        return copy;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getSumMillis() {
+        return sumNanos / 1_000_000.0;
+    }
+
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * Estimates a percentile by interpolating within its bucket.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the estimated latency in milliseconds, or 0 if nothing was recorded
+     */
+    public synchronized double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = percentile / 100 * count;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                double lower = i == 0 ? 0 : BOUNDS_MILLIS[i - 1];
+                double upper = i < BOUNDS_MILLIS.length ? BOUNDS_MILLIS[i] : getMaxMillis();
+                double estimate = lower + (upper - lower) * (rank - seen) / counts[i];
+                return Math.min(estimate, getMaxMillis());
+            }
+            seen += counts[i];
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return the number of samples at or below each bound of {@link #BOUNDS_MILLIS}
+     */
+    public synchronized long[] getCumulativeCounts() {
+        long[] cumulative = Arrays.copyOf(counts, BOUNDS_MILLIS.length);
+        for (int i = 1; i < cumulative.length; i++) {
+            cumulative[i] += cumulative[i - 1];
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.openqa.selenium.By;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+/**
+ * Times every call made through an instrumented driver and its elements, windows and navigation,
+ * and hands the result to {@link CommandMetrics} and the {@link RoundTripTracer}.
+ */
+class MetricsListener implements WebDriverListener {
+    // Calls can nest (a decorated call made from within another), so starts are kept as a stack.
+    private final ThreadLocal<Deque<Long>> starts = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (isTimed(method)) {
+            starts.get().push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        finish(method, args);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        finish(method, args);
+    }
+
+    private void finish(Method method, Object[] args) {
+        if (!isTimed(method)) {
+            return;
+        }
+        Long started = starts.get().poll();
+        if (started != null) {
+            String command = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            By locator = locatorOf(args);
+            CommandMetrics.recordCommand(command, locator, System.nanoTime() - started);
+            RoundTripTracer.recordCommand(command, locator);
+        }
+    }
+
+    // Bookkeeping calls (hashCode, equals, unwrapping) are not browser commands.
+    private static boolean isTimed(Method method) {
+        return method.getDeclaringClass() != Object.class && !method.getName().startsWith("getWrapped");
+    }
+
+    private static By locatorOf(Object[] args) {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof By) {
+                    return (By) arg;
+                }
+            }
+        }
+        return null;
+    }
+}
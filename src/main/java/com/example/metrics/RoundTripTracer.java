@@ -0,0 +1,161 @@
+package com.example.metrics;
+
+import com.example.config.ConfigReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.By;
+
+/**
+ * Counts the WebDriver commands each Cucumber step issues and how often it looks up the same
+ * locator, to find page objects that re-resolve an element on every call (the N+1 pattern).
+ * Enabled with {@code trace.roundtrips=true}; the runner marks where steps start and finish.
+ */
+public final class RoundTripTracer {
+    private static final boolean ENABLED = ConfigReader.isRoundTripTraceEnabled();
+    private static final StackWalker STACK = StackWalker.getInstance();
+
+    private static final ThreadLocal<StepTrace> current = new ThreadLocal<>();
+
+    private RoundTripTracer() {
+    }
+
+    /**
+     * @return whether {@code trace.roundtrips} is set
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts tracing a step on the current thread.
+     */
+    public static void startStep() {
+        if (ENABLED) {
+            current.set(new StepTrace());
+        }
+    }
+
+    /**
+     * Stops tracing the current thread's step.
+     *
+     * @return what the step did, or null if no step was being traced
+     */
+    public static StepTrace finishStep() {
+        StepTrace trace = current.get();
+        current.remove();
+        return trace;
+    }
+
+    /**
+     * Records that a UI action was called for a locator.
+     *
+     * @param locator the locator the action works on, or null
+     */
+    public static void recordAction(By locator) {
+        StepTrace trace = ENABLED && locator != null ? current.get() : null;
+        if (trace != null) {
+            trace.find(locator.toString()).actions++;
+        }
+    }
+
+    static void recordCommand(String command, By locator) {
+        StepTrace trace = ENABLED ? current.get() : null;
+        if (trace == null) {
+            return;
+        }
+        trace.commands++;
+        if (locator != null && (command.endsWith(".findElement") || command.endsWith(".findElements"))) {
+            trace.find(locator.toString()).finds++;
+        }
+    }
+
+    /**
+     * The page object method (or step definition) that works with an element: the first
+     * framework class up the stack outside the actions and metrics code.
+     */
+    private static String callerName() {
+        return STACK.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.example.")
+                        && !frame.getClassName().startsWith("com.example.actions.")
+                        && !frame.getClassName().startsWith("com.example.metrics."))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse(""));
+    }
+
+    /**
+     * What one step did.
+     */
+    public static final class StepTrace {
+        private final Map<String, LocatorUse> locators = new LinkedHashMap<>();
+        private int commands;
+
+        private LocatorUse find(String locator) {
+            return locators.computeIfAbsent(locator, key -> new LocatorUse(key, callerName()));
+        }
+
+        /**
+         * @return the number of WebDriver commands the step issued
+         */
+        public int getCommands() {
+            return commands;
+        }
+
+        /**
+         * @return the locators the step looked up more than once
+         */
+        public List<LocatorUse> getRepeatedFinds() {
+            List<LocatorUse> repeated = new ArrayList<>();
+            for (LocatorUse use : locators.values()) {
+                if (use.finds > 1) {
+                    repeated.add(use);
+                }
+            }
+            return repeated;
+        }
+    }
+
+    /**
+     * How often a step looked up one locator.
+     */
+    public static final class LocatorUse {
+        private final String locator;
+        private final String page;
+        private int finds;
+        private int actions;
+
+        private LocatorUse(String locator, String page) {
+            this.locator = locator;
+            this.page = page;
+        }
+
+        public String getLocator() {
+            return locator;
+        }
+
+        /**
+         * @return the page object method that first used the locator in the step
+         */
+        public String getPage() {
+            return page;
+        }
+
+        /**
+         * @return the number of findElement/findElements commands, including wait polls
+         */
+        public int getFinds() {
+            return finds;
+        }
+
+        /**
+         * @return the number of UI actions called for the locator; more than one means the element
+         *         was resolved again instead of reused
+         */
+        public int getActions() {
+            return actions;
+        }
+    }
+}
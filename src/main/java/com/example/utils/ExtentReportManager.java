@@ -2,39 +2,146 @@ package com.example.utils;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.reporter.JsonFormatter;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.example.config.ConfigReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 public class ExtentReportManager {
-    private static ExtentReports extent;
+    private static volatile ExtentReports extent;
+    private static volatile ReportLog reportLog;
     private static ThreadLocal<ExtentTest> test = new ThreadLocal<>();
+    private static ThreadLocal<ReportLog.Entry> entry = new ThreadLocal<>();
     
-    public static void initReport() {
-        if (extent == null) {
-            extent = new ExtentReports();
-            ExtentSparkReporter spark = new ExtentSparkReporter("test-output/extent-report.html");
-            spark.config().setTheme(Theme.STANDARD);
-            spark.config().setDocumentTitle("Automation Report");
-            spark.config().setReportName("Test Execution Report");
-            extent.attachReporter(spark);
+    /**
+     * Starts the report. In {@code streaming} mode (see {@code report.mode}) finished tests are
+     * appended to {@code extent-report.jsonl} and the HTML is rendered from it when the report is
+     * flushed; in {@code memory} mode the whole report is kept in memory until then.
+     */
+    public static synchronized void initReport() {
+        if (extent != null || reportLog != null) {
+            return;
         }
+        String directory = ConfigReader.getReportDirectory();
+        if (isStreaming()) {
+            reportLog = ReportLog.create(Paths.get(directory, "extent-report.jsonl"));
+            return;
+        }
+        ExtentReports report = new ExtentReports();
+        report.attachReporter(createSpark(Paths.get(directory, "extent-report.html")));
+        if (ConfigReader.getShardCount() > 1) {
+            // Shard reports are merged from their JSON archives after all shards have run.
+            report.attachReporter(new JsonFormatter(directory + "/extent-report.json"));
+        }
+        extent = report;
     }
     
     public static void createTest(String testName) {
-        test.set(extent.createTest(testName));
+        if (reportLog != null) {
+            entry.set(new ReportLog.Entry(testName));
+        } else {
+            test.set(extent.createTest(testName));
+        }
     }
     
     public static void logPass(String message) {
-        test.get().pass(message);
+        log(Status.PASS, message);
     }
     
     public static void logFail(String message) {
-        test.get().fail(message);
+        log(Status.FAIL, message);
+    }
+    
+    private static void log(Status status, String message) {
+        if (reportLog != null) {
+            entry.get().log(status, message);
+        } else {
+            test.get().log(status, message);
+        }
     }
     
-    public static void flushReport() {
-        if (extent != null) {
+    /**
+     * Ends the current thread's test. In streaming mode this writes it to the report log.
+     */
+    public static void endTest() {
+        ReportLog.Entry finished = entry.get();
+        if (reportLog != null && finished != null) {
+            finished.end();
+            reportLog.append(finished);
+        }
+        entry.remove();
+        test.remove();
+    }
+    
+    /**
+     * Adds a report entry that is not a scenario, such as the run's metrics.
+     *
+     * @param name the name of the entry
+     * @param html the content, logged as information
+     */
+    public static void addSummary(String name, String html) {
+        if (reportLog == null && extent == null) {
+            return;
+        }
+        createTest(name);
+        log(Status.INFO, html);
+        endTest();
+    }
+    
+    public static synchronized void flushReport() {
+        if (reportLog != null) {
+            reportLog.close();
+            renderReport(List.of(reportLog.getFile()), Paths.get(ConfigReader.getReportDirectory(), "extent-report.html"));
+            reportLog = null;
+        } else if (extent != null) {
             extent.flush();
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Renders report logs to an HTML report. Logs are read one test at a time, so this also works
+     * on a log that is still being written, or one left behind by a crashed run. The rendered
+     * report is built in memory before it is written, so this needs memory for the whole suite.
+     *
+     * @param logs the report logs, e.g. one per shard
+     * @param html the HTML report to write
+     */
+    public static void renderReport(List<Path> logs, Path html) {
+        ExtentReports report = new ExtentReports();
+        report.setReportUsesManualConfiguration(true);
+        report.attachReporter(createSpark(html));
+        for (Path log : logs) {
+            ReportLog.read(log, finished -> {
+                ExtentTest rendered = report.createTest(finished.getName());
+                for (Map<String, Object> line : finished.getLogs()) {
+                    rendered.log(Status.valueOf(String.valueOf(line.get("status"))), String.valueOf(line.get("message")));
+                    List<Log> renderedLogs = rendered.getModel().getLogs();
+                    renderedLogs.get(renderedLogs.size() - 1)
+                        .setTimestamp(new Date(((Number) line.get("timestamp")).longValue()));
+                }
+                rendered.getModel().setStartTime(Date.from(finished.getStarted()));
+                rendered.getModel().setEndTime(Date.from(finished.getEnded()));
+            });
+        }
+        report.flush();
+    }
+    
+    private static ExtentSparkReporter createSpark(Path html) {
+        ExtentSparkReporter spark = new ExtentSparkReporter(html.toString());
+        spark.config().setTheme(Theme.STANDARD);
+        spark.config().setDocumentTitle("Automation Report");
+        spark.config().setReportName("Test Execution Report");
+        return spark;
+    }
+    
+    private static boolean isStreaming() {
+        return "streaming".equalsIgnoreCase(ConfigReader.getReportMode());
+    }
+}
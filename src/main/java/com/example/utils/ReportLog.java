@@ -0,0 +1,195 @@
+package com.example.utils;
+
+import com.aventstack.extentreports.Status;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+/**
+ * An append-only report log with one JSON line per finished test. Each test is written and flushed
+ * as soon as it ends, so finished tests are not held in memory while the suite runs and a crash
+ * loses at most the tests that were still running. {@link ExtentReportManager} renders the HTML
+ * report from it at the end, which builds the whole report in memory once.
+ */
+public class ReportLog implements AutoCloseable {
+    private static final Json JSON = new Json();
+
+    private final Path file;
+    private final Writer writer;
+
+    private ReportLog(Path file, Writer writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a new log, replacing the log of a previous run.
+     *
+     * @param file the log file
+     * @return the log
+     */
+    public static ReportLog create(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return new ReportLog(file, Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create report log " + file, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends a finished test and flushes it to disk.
+     */
+    public synchronized void append(Entry entry) {
+        StringWriter line = new StringWriter();
+        JSON.newOutput(line).setPrettyPrint(false).write(entry.toMap()).close();
+        try {
+            writer.write(line.toString());
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write to report log " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close report log " + file, e);
+        }
+    }
+
+    /**
+     * Reads the tests of a log one at a time. A line cut short by a crash is skipped.
+     *
+     * @param file the log file
+     * @param consumer receives each test
+     */
+    public static void read(Path file, Consumer<Entry> consumer) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, Object> raw;
+                try {
+                    raw = JSON.toType(line, Json.MAP_TYPE);
+                } catch (JsonException e) {
+                    continue;
+                }
+                consumer.accept(Entry.fromMap(raw));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read report log " + file, e);
+        }
+    }
+
+    /**
+     * Renders report logs to HTML on demand, e.g. from a log left behind by a crashed run.
+     *
+     * @param args the HTML file to write, followed by one or more log files
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ReportLog <report.html> <log.jsonl>...");
+        }
+        List<Path> logs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            logs.add(Paths.get(args[i]));
+        }
+        ExtentReportManager.renderReport(logs, Paths.get(args[0]));
+    }
+
+    /**
+     * One test: its name, when it ran, and what it logged.
+     */
+    public static class Entry {
+        private final String name;
+        private final Instant started;
+        private Instant ended;
+        private final List<Map<String, Object>> logs = new ArrayList<>();
+
+        public Entry(String name) {
+            this(name, Instant.now());
+        }
+
+        private Entry(String name, Instant started) {
+            this.name = name;
+            this.started = started;
+        }
+
+        public void log(Status status, String message) {
+            Map<String, Object> log = new LinkedHashMap<>();
+            log.put("status", status.name());
+            log.put("message", message);
+            log.put("timestamp", Instant.now().toEpochMilli());
+            logs.add(log);
+        }
+
+        public void end() {
+            ended = Instant.now();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Instant getStarted() {
+            return started;
+        }
+
+        public Instant getEnded() {
+            return ended == null ? started : ended;
+        }
+
+        /**
+         * @return the logs in order, each with a {@code status}, {@code message} and epoch-millis {@code timestamp}
+         */
+        public List<Map<String, Object>> getLogs() {
+            return logs;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("started", started.toEpochMilli());
+            map.put("ended", getEnded().toEpochMilli());
+            map.put("logs", logs);
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Entry fromMap(Map<String, Object> map) {
+            Entry entry = new Entry(String.valueOf(map.get("name")),
+                    Instant.ofEpochMilli(((Number) map.get("started")).longValue()));
+            entry.ended = Instant.ofEpochMilli(((Number) map.get("ended")).longValue());
+            entry.logs.addAll((List<Map<String, Object>>) map.get("logs"));
+            return entry;
+        }
+    }
+}
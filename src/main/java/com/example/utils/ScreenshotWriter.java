@@ -0,0 +1,169 @@
+package com.example.utils;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes screenshots to disk on background threads, so the scenario thread only pays for taking
+ * the screenshot. Screenshots can be downscaled and recompressed as JPEG on the way.
+ * <p>
+ * At most {@code maxPending} screenshots are held in memory; when that many are waiting to be
+ * written, {@link #submit} blocks until one is done instead of letting the heap fill up.
+ * Screenshots that could not be written are remembered for the report (see {@link #failureSummaryHtml}),
+ * since the scenario that linked them has usually finished by then.
+ */
+public class ScreenshotWriter implements AutoCloseable {
+    private final Path directory;
+    private final double scale;
+    private final String format;
+    private final float quality;
+    private final Semaphore pending;
+    private final ExecutorService workers;
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final Map<String, String> failures = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param directory the directory screenshots are written to
+     * @param threads the number of writer threads
+     * @param maxPending the number of screenshots that may wait to be written
+     * @param scale the factor screenshots are resized by, 1 to keep their size
+     * @param format {@code png} to keep the original, or {@code jpg} to recompress
+     * @param quality the JPEG quality, from 0 to 1
+     */
+    public ScreenshotWriter(Path directory, int threads, int maxPending, double scale, String format, float quality) {
+        this.directory = directory;
+        this.scale = scale;
+        this.format = format.toLowerCase();
+        this.quality = quality;
+        this.pending = new Semaphore(maxPending);
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "screenshot-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a screenshot to be written, waiting if too many are queued already.
+     *
+     * @param name a name for the file, e.g. the scenario name
+     * @param png the screenshot as PNG
+     * @return the file the screenshot will be written to
+     */
+    public Path submit(String name, byte[] png) {
+        String fileName = name.replaceAll("[^A-Za-z0-9._-]+", "_")
+                + "-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet() + "." + format;
+        Path file = directory.resolve(fileName);
+        pending.acquireUninterruptibly();
+        try {
+            workers.execute(() -> {
+                try {
+                    write(file, png);
+                } catch (Exception e) {
+                    failures.put(file.getFileName().toString(), e.toString());
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Waits for all queued screenshots to be written.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lists the screenshots that could not be written. Complete once the writer is closed.
+     *
+     * @return an HTML table of the missing files and why, or null if every screenshot was written
+     */
+    public String failureSummaryHtml() {
+        if (failures.isEmpty()) {
+            return null;
+        }
+        StringBuilder html = new StringBuilder("<table class='table table-sm'><tr><th>Screenshot</th><th>Error</th></tr>");
+        failures.forEach((file, error) -> html.append("<tr><td>").append(escapeHtml(file))
+                .append("</td><td>").append(escapeHtml(error)).append("</td></tr>"));
+        return html.append("</table>").toString();
+    }
+
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;");
+    }
+
+    private void write(Path file, byte[] png) throws IOException {
+        Files.createDirectories(directory);
+        if (scale == 1 && "png".equals(format)) {
+            Files.write(file, png);
+            return;
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Screenshot is not a readable image: " + file);
+        }
+        BufferedImage output = resize(image);
+        if ("png".equals(format)) {
+            ImageIO.write(output, "png", file.toFile());
+            return;
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        Files.deleteIfExists(file);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(output, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // JPEG has no alpha channel, so the result is always RGB.
+    private BufferedImage resize(BufferedImage image) {
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+}
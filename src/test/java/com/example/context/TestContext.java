@@ -1,28 +1,102 @@
 package com.example.context;
 
+import com.example.actions.ApiActions;
 import com.example.actions.UiActions;
+import com.example.config.ConfigReader;
 import com.example.driver.DriverFactory;
+import com.example.driver.NetworkMonitor;
 import com.example.pages.PageFactory;
+import com.example.runner.Timeline;
 import com.example.enums.TestType;
+import com.example.stub.ApiStubServer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.openqa.selenium.WebDriver;
 
 public class TestContext {
     private UiActions page;
     private PageFactory pages;
+    private ApiActions api;
     private final TestType testType;
+    private final Set<String> tags;
+    private boolean driverAcquired;
     
-    public TestContext(TestType testType) {
+    public TestContext(TestType testType, Collection<String> tags) {
         this.testType = testType;
+        this.tags = new HashSet<>(tags);
         if (testType == TestType.UI) {
             initializeUIComponents();
+        } else if (testType == TestType.API) {
+            initializeAPIComponents();
         }
     }
     
     private void initializeUIComponents() {
-        DriverFactory.initDriver();
-        page = new UiActions(DriverFactory.getDriver());
+        // The browser is only acquired when the first UI command is issued.
+        page = new UiActions(this::acquireDriver);
         pages = new PageFactory(page);
     }
     
+    private void initializeAPIComponents() {
+        // Without a configured service the scenarios run against the local stub.
+        String baseUrl = ConfigReader.getApiBaseUrl();
+        api = new ApiActions(baseUrl.isEmpty() ? ApiStubServer.getBaseUrl() : baseUrl);
+    }
+    
+    @SuppressWarnings("try")
+    private WebDriver acquireDriver() {
+        if (!driverAcquired) {
+            try (Timeline.Span span = Timeline.start("driver", "driver startup")) {
+                DriverFactory.initDriver();
+                driverAcquired = true;
+                applyNetworkSettings();
+            }
+        }
+        return DriverFactory.getDriver();
+    }
+    
+    /**
+     * Applies this scenario's request blocking and record/replay choices to the (possibly reused) session.
+     */
+    private void applyNetworkSettings() {
+        if (DriverFactory.isSharedBrowser() && (tags.contains("@har-record") || tags.contains("@har-replay"))) {
+            throw new IllegalStateException("@har-record and @har-replay need a browser of the scenario's own; "
+                    + "they cannot run with driver.user.contexts above 1");
+        }
+        NetworkMonitor monitor = getNetworkMonitor();
+        if (monitor != null) {
+            monitor.reset();
+            monitor.setBlockingEnabled(!tags.contains("@network-unblocked"));
+            monitor.setHarMode(getHarMode());
+        }
+    }
+    
+    private NetworkMonitor.HarMode getHarMode() {
+        if (tags.contains("@har-replay")) {
+            return NetworkMonitor.HarMode.REPLAY;
+        } else if (tags.contains("@har-record")) {
+            return NetworkMonitor.HarMode.RECORD;
+        } else if (tags.contains("@har-off")) {
+            return NetworkMonitor.HarMode.OFF;
+        }
+        return DriverFactory.getDefaultHarMode();
+    }
+    
+    /**
+     * @return the network monitor of this scenario's browser, or null if it has none
+     */
+    public NetworkMonitor getNetworkMonitor() {
+        return driverAcquired ? DriverFactory.getNetworkMonitor(DriverFactory.getDriver()) : null;
+    }
+    
+    /**
+     * @return true if this scenario has acquired a browser
+     */
+    public boolean hasDriver() {
+        return driverAcquired;
+    }
+    
     public UiActions getPage() {
         checkUIContext();
         return page;
@@ -33,15 +107,32 @@ public class TestContext {
         return pages;
     }
     
+    public ApiActions getApi() {
+        if (testType != TestType.API) {
+            throw new IllegalStateException("Attempting to use API components in a non-API test");
+        }
+        return api;
+    }
+    
     private void checkUIContext() {
         if (testType != TestType.UI) {
             throw new IllegalStateException("Attempting to use UI components in a non-UI test");
         }
     }
     
-    public void tearDown() {
-        if (testType == TestType.UI) {
-            DriverFactory.quitDriver();
+    /**
+     * Releases the UI components of this context. A pooled driver goes back to the pool;
+     * nothing happens if the scenario never acquired a driver.
+     *
+     * @param failed whether the scenario failed, so a pooled driver can be retired
+     */
+    @SuppressWarnings("try")
+    public void tearDown(boolean failed) {
+        if (driverAcquired) {
+            driverAcquired = false;
+            try (Timeline.Span span = Timeline.start("teardown", "release driver")) {
+                DriverFactory.releaseDriver(failed);
+            }
         }
     }
     
@@ -0,0 +1,302 @@
+package com.example.runner;
+
+import com.example.actions.LocatorTimings;
+import com.example.config.ConfigReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how many UI scenarios may run at once, between a minimum and a maximum, from how loaded
+ * the machine is. Every interval it samples CPU load, available memory and how much slower element
+ * waits are than usual ({@link LocatorTimings#getRecentSlowdown}, only measured with
+ * {@code wait.adaptive=true}), then lowers the limit by one
+ * when any of them is over its threshold and raises it by one when all are comfortable and
+ * scenarios are queued. Every change is appended to {@code governor.log} in the report directory
+ * as it is made, with the measurements behind it.
+ * <p>
+ * The limit only gates new scenario starts; running scenarios are never interrupted.
+ */
+public class ConcurrencyGovernor {
+    private final int min;
+    private final int max;
+    private final double cpuHigh;
+    private final double cpuLow;
+    private final double minFreeMemory;
+    private final double maxSlowdown;
+    private final ScheduledExecutorService sampler;
+    private final Path logFile;
+
+    // Guarded by this.
+    private int limit;
+    private int running;
+    private int queued;
+    private int lowestLimit;
+    private int highestLimit;
+
+    /**
+     * Creates a governor and starts sampling.
+     *
+     * @param min the lowest limit
+     * @param max the highest limit
+     * @param initial the limit to start with
+     * @param interval how often the load is sampled
+     * @param cpuHigh the CPU load (0.0 - 1.0) above which the limit is lowered
+     * @param cpuLow the CPU load below which the limit may be raised
+     * @param minFreeMemory the share of available physical memory (0.0 - 1.0) below which the limit is lowered
+     * @param maxSlowdown the wait slowdown above which the limit is lowered
+     * @param logFile the file decisions are appended to, replacing any earlier one
+     */
+    public ConcurrencyGovernor(int min, int max, int initial, Duration interval, double cpuHigh, double cpuLow,
+                               double minFreeMemory, double maxSlowdown, Path logFile) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.cpuHigh = cpuHigh;
+        this.cpuLow = cpuLow;
+        this.minFreeMemory = minFreeMemory;
+        this.maxSlowdown = maxSlowdown;
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        this.lowestLimit = limit;
+        this.highestLimit = limit;
+        this.logFile = logFile;
+        try {
+            if (logFile.getParent() != null) {
+                Files.createDirectories(logFile.getParent());
+            }
+            Files.write(logFile, new byte[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the governor log " + logFile, e);
+        }
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        sampler.scheduleWithFixedDelay(() -> adjust(Load.sample()), millis, millis, TimeUnit.MILLISECONDS);
+        log(String.format(Locale.ROOT, "starting at %d UI scenario(s) at once, allowed %d - %d", limit, this.min, this.max));
+    }
+
+    /**
+     * @return a governor configured by the {@code governor.*} properties, starting at {@code lane.ui.threads}
+     *         and never allowing more scenarios than the session pool has browsers
+     */
+    public static ConcurrencyGovernor fromConfig() {
+        return new ConcurrencyGovernor(
+                ConfigReader.getGovernorMinThreads(),
+                configuredMax(),
+                ConfigReader.getUiLaneThreads(),
+                Duration.ofMillis(ConfigReader.getGovernorIntervalMillis()),
+                ConfigReader.getGovernorCpuHigh(),
+                ConfigReader.getGovernorCpuLow(),
+                ConfigReader.getGovernorMinFreeMemory(),
+                ConfigReader.getGovernorMaxWaitSlowdown(),
+                Paths.get(ConfigReader.getReportDirectory(), "governor.log"));
+    }
+
+    private static int configuredMax() {
+        int max = ConfigReader.getGovernorMaxThreads();
+        if (ConfigReader.isDriverPoolEnabled() && ConfigReader.getUserContextsPerBrowser() <= 1
+                && max > ConfigReader.getDriverPoolMaxSize()) {
+            // Scenarios beyond the pool size would only queue for a session while counted as running.
+            max = ConfigReader.getDriverPoolMaxSize();
+        }
+        return max;
+    }
+
+    /**
+     * @return the number of UI scenarios the run starts with: {@code lane.ui.threads}, kept within
+     *         the governor's limits when it is enabled
+     */
+    public static int initialUiThreads() {
+        int initial = ConfigReader.getUiLaneThreads();
+        if (!ConfigReader.isGovernorEnabled()) {
+            return initial;
+        }
+        int min = Math.max(1, ConfigReader.getGovernorMinThreads());
+        return Math.max(min, Math.min(Math.max(min, configuredMax()), initial));
+    }
+
+    /**
+     * @return the highest number of scenarios that may ever run at once
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Blocks until the limit allows one more scenario to start.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        queued++;
+        try {
+            while (running >= limit) {
+                wait();
+            }
+        } finally {
+            queued--;
+        }
+        running++;
+    }
+
+    /**
+     * Records that a scenario has finished.
+     */
+    public synchronized void release() {
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * Applies one round of measurements to the limit.
+     */
+    synchronized void adjust(Load load) {
+        String reason = null;
+        int next = limit;
+        if (load.cpu > cpuHigh) {
+            reason = "CPU above " + percent(cpuHigh);
+        } else if (load.freeMemory < minFreeMemory) {
+            reason = "available memory below " + percent(minFreeMemory);
+        } else if (load.slowdown > maxSlowdown) {
+            reason = String.format(Locale.ROOT, "waits over %.1fx slower than usual", maxSlowdown);
+        }
+        if (reason != null) {
+            next = Math.max(min, limit - 1);
+        } else if (queued > 0 && load.cpu < cpuLow) {
+            next = Math.min(max, limit + 1);
+            reason = queued + " scenario(s) queued and CPU below " + percent(cpuLow);
+        }
+        if (next == limit) {
+            return;
+        }
+        log(String.format(Locale.ROOT, "%d -> %d UI scenario(s) at once: %s (%s, %d running)",
+                limit, next, reason, load, running));
+        limit = next;
+        lowestLimit = Math.min(lowestLimit, limit);
+        highestLimit = Math.max(highestLimit, limit);
+        notifyAll();
+    }
+
+    /**
+     * Stops sampling and logs the range the limit moved in.
+     */
+    public void shutdown() {
+        sampler.shutdownNow();
+        synchronized (this) {
+            log(String.format(Locale.ROOT, "finished at %d UI scenario(s) at once, ranged %d - %d",
+                    limit, lowestLimit, highestLimit));
+        }
+    }
+
+    /**
+     * Appends one line to the log straight away, so the decisions survive a run that dies.
+     */
+    private synchronized void log(String message) {
+        try {
+            Files.write(logFile, List.of(Instant.now() + " " + message), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Keep governing; a lost log line must not stop the sampler.
+            System.err.println("Unable to append to the governor log " + logFile + ": " + e);
+        }
+    }
+
+    private static String percent(double share) {
+        return Math.round(share * 100) + "%";
+    }
+
+    /**
+     * One sample of the machine's load.
+     */
+    static final class Load {
+        final double cpu;
+        // Share of physical memory available to new processes, page cache included.
+        final double freeMemory;
+        final double slowdown;
+
+        Load(double cpu, double freeMemory, double slowdown) {
+            this.cpu = cpu;
+            this.freeMemory = freeMemory;
+            this.slowdown = slowdown;
+        }
+
+        /**
+         * Reads the system CPU load from the JDK's operating system bean, falling back to the load
+         * average when it is unavailable. Available memory comes from {@code MemAvailable} in
+         * {@code /proc/meminfo} on Linux, where the bean's free memory leaves out the page cache the
+         * kernel gives back on demand, and from the bean's free memory elsewhere.
+         */
+        @SuppressWarnings("deprecation")
+        static Load sample() {
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            double cpu = -1;
+            double freeMemory = availableMemory();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                com.sun.management.OperatingSystemMXBean bean = (com.sun.management.OperatingSystemMXBean) os;
+                cpu = bean.getSystemCpuLoad();
+                long total = bean.getTotalPhysicalMemorySize();
+                if (freeMemory < 0 && total > 0) {
+                    freeMemory = bean.getFreePhysicalMemorySize() / (double) total;
+                }
+            }
+            if (freeMemory < 0) {
+                freeMemory = 1;
+            }
+            if (cpu < 0) {
+                double average = os.getSystemLoadAverage();
+                cpu = average < 0 ? 0 : Math.min(1, average / os.getAvailableProcessors());
+            }
+            return new Load(cpu, freeMemory, LocatorTimings.getRecentSlowdown());
+        }
+
+        /**
+         * @return MemAvailable / MemTotal from {@code /proc/meminfo}, or -1 if it cannot be read
+         */
+        private static double availableMemory() {
+            Path meminfo = Paths.get("/proc/meminfo");
+            if (!Files.isReadable(meminfo)) {
+                return -1;
+            }
+            long total = -1;
+            long available = -1;
+            try {
+                for (String line : Files.readAllLines(meminfo, StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("MemTotal:")) {
+                        total = kilobytes(line);
+                    } else if (line.startsWith("MemAvailable:")) {
+                        available = kilobytes(line);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+            return total > 0 && available >= 0 ? available / (double) total : -1;
+        }
+
+        // "MemAvailable:   12345678 kB"
+        private static long kilobytes(String line) {
+            return Long.parseLong(line.replaceAll("[^0-9]", ""));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "CPU %s, available memory %s, waits %.1fx usual",
+                    percent(cpu), percent(freeMemory), slowdown);
+        }
+    }
+}
@@ -1,8 +1,25 @@
 package com.example.runner;
 
+import com.example.config.ConfigReader;
 import io.cucumber.testng.AbstractTestNGCucumberTests;
 import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.FeatureWrapper;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.testng.ITestContext;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
 
 @CucumberOptions(
     features = "src/test/resources/features",
@@ -11,15 +28,117 @@ import org.testng.annotations.DataProvider;
         "pretty",
         "html:target/cucumber-reports/cucumber-pretty.html",
         "json:target/cucumber-reports/CucumberTestReport.json",
-        "com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter:"
+        "com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter:",
+        "com.example.runner.ScenarioHistoryPlugin",
+        "com.example.runner.TimelinePlugin",
+        "com.example.runner.RoundTripPlugin"
     },
     monochrome = true,
     tags = "" // Run both UI and API tests
 )
 public class CucumberRunner extends AbstractTestNGCucumberTests {
+    private ScenarioLanes lanes;
+    private ConcurrencyGovernor governor;
+    private final Map<PickleWrapper, CompletableFuture<Void>> scheduled = new ConcurrentHashMap<>();
+
+    @Override
+    @BeforeClass(alwaysRun = true)
+    public void setUpClass(ITestContext context) {
+        if (ConfigReader.getShardCount() > 1) {
+            Shards.configureReports(ConfigReader.getReportDirectory());
+        }
+        if (ConfigReader.isGovernorEnabled()) {
+            governor = ConcurrencyGovernor.fromConfig();
+            lanes = new ScenarioLanes(governor.getMax(), ConfigReader.getApiLaneThreads(),
+                    ConfigReader.isApiLaneVirtual(), governor);
+        } else {
+            lanes = new ScenarioLanes(ConfigReader.getUiLaneThreads(), ConfigReader.getApiLaneThreads(),
+                    ConfigReader.isApiLaneVirtual());
+        }
+        super.setUpClass(context);
+    }
+
+    /**
+     * Builds this shard's scenario rows (see {@link Shards} for the split). Scenarios are handed
+     * out longest first, by their duration in previous runs, so no worker is left with a long
+     * scenario at the end while the others sit idle. Scenarios without history go first, as they
+     * may be the longest of all; ties keep feature file order.
+     * <p>
+     * Every scenario is queued in its lane here, before TestNG runs any row, so each lane works
+     * through its own queue and a UI scenario waiting for a browser never holds up an API one.
+     */
     @Override
     @DataProvider(parallel = true)
     public Object[][] scenarios() {
-        return super.scenarios();
+        Object[][] scenarios = super.scenarios();
+        ScenarioHistory history = ScenarioHistory.load(Paths.get(ConfigReader.getScenarioHistoryFile()));
+        if (ConfigReader.getShardCount() > 1) {
+            scenarios = selectShard(scenarios, Shards.planningHistory(ConfigReader.getShardHistoryFile()),
+                    ConfigReader.getShardIndex(), ConfigReader.getShardCount());
+        }
+        if ("longest-first".equalsIgnoreCase(ConfigReader.getScenarioOrder())) {
+            Arrays.sort(scenarios, Comparator.comparingLong((Object[] row) -> {
+                long millis = history.getMillis(key(row));
+                return millis < 0 ? Long.MAX_VALUE : millis;
+            }).reversed());
+        }
+        for (Object[] row : scenarios) {
+            PickleWrapper pickleWrapper = (PickleWrapper) row[0];
+            FeatureWrapper featureWrapper = (FeatureWrapper) row[1];
+            scheduled.put(pickleWrapper, lanes.submit(ScenarioLanes.Lane.of(pickleWrapper.getPickle().getTags()),
+                    () -> super.runScenario(pickleWrapper, featureWrapper)));
+        }
+        return scenarios;
+    }
+
+    /**
+     * Waits for the scenario queued by {@link #scenarios()} and reports its outcome. The lanes
+     * alone bound how many scenarios of each kind run at once; TestNG's data-provider threads only
+     * collect the results.
+     */
+    @Override
+    @Test(groups = "cucumber", description = "Runs Cucumber Scenarios", dataProvider = "scenarios")
+    public void runScenario(PickleWrapper pickleWrapper, FeatureWrapper featureWrapper) {
+        try {
+            scheduled.remove(pickleWrapper).join();
+        } catch (CompletionException e) {
+            // Cucumber reports failures and skips as unchecked exceptions; pass them on as they are.
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Override
+    @AfterClass(alwaysRun = true)
+    public void tearDownClass() {
+        if (lanes != null) {
+            lanes.shutdown();
+        }
+        if (governor != null) {
+            governor.shutdown();
+        }
+        super.tearDownClass();
+    }
+
+    private static Object[][] selectShard(Object[][] scenarios, ScenarioHistory history, int index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("shard.index must be between 0 and " + (count - 1) + ", was " + index);
+        }
+        List<String> keys = new ArrayList<>();
+        for (Object[] row : scenarios) {
+            keys.add(key(row));
+        }
+        Map<String, Integer> plan = Shards.assign(keys, history, count);
+        Shards.writePlan(ConfigReader.getReportDirectory(), keys, index, count);
+        return Arrays.stream(scenarios)
+                .filter(row -> plan.get(key(row)) == index)
+                .toArray(Object[][]::new);
+    }
+
+    static String key(Object[] row) {
+        Pickle pickle = ((PickleWrapper) row[0]).getPickle();
+        return ScenarioHistory.key(pickle.getUri(), pickle.getLine());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.example.runner;
+
+import com.example.config.ConfigReader;
+import com.example.metrics.RoundTripTracer;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Reports the WebDriver round trips of every step, as counted by the {@link RoundTripTracer}.
+ * When the run finishes it writes {@code roundtrips.json} and {@code roundtrips-summary.txt}
+ * with the steps that issue the most commands and the locators that steps look up again and
+ * again, attributed to the step and the page object method that used them.
+ */
+public class RoundTripPlugin implements ConcurrentEventListener {
+    private static final Json JSON = new Json();
+    private static final int SUMMARY_ROWS = 10;
+
+    private final Map<String, StepStats> steps = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!RoundTripTracer.isEnabled()) {
+            return;
+        }
+        publisher.registerHandlerFor(TestStepStarted.class, event -> {
+            if (event.getTestStep() instanceof PickleStepTestStep) {
+                RoundTripTracer.startStep();
+            }
+        });
+        publisher.registerHandlerFor(TestStepFinished.class, this::onStepFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> save());
+    }
+
+    private void onStepFinished(TestStepFinished event) {
+        if (!(event.getTestStep() instanceof PickleStepTestStep)) {
+            return;
+        }
+        RoundTripTracer.StepTrace trace = RoundTripTracer.finishStep();
+        if (trace == null) {
+            return;
+        }
+        PickleStepTestStep step = (PickleStepTestStep) event.getTestStep();
+        String location = ScenarioHistory.key(step.getUri(), step.getStep().getLine());
+        StepStats stats = steps.computeIfAbsent(location,
+                key -> new StepStats(step.getStep().getKeyword() + step.getStep().getText(), key));
+        stats.add(trace);
+    }
+
+    private void save() {
+        if (steps.isEmpty()) {
+            return;
+        }
+        List<StepStats> byCommands = new ArrayList<>(steps.values());
+        byCommands.sort(Comparator.comparingLong((StepStats stats) -> stats.commands).reversed()
+                .thenComparing(stats -> stats.location));
+        List<Map<String, Object>> repeated = new ArrayList<>();
+        for (StepStats stats : byCommands) {
+            stats.repeated.values().forEach(use -> repeated.add(use.toJson(stats)));
+        }
+        repeated.sort(Comparator.comparingLong((Map<String, Object> use) -> (Long) use.get("redundantFinds")).reversed());
+
+        List<Map<String, Object>> stepJson = new ArrayList<>();
+        byCommands.forEach(stats -> stepJson.add(stats.toJson()));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("steps", stepJson);
+        report.put("repeatedFinds", repeated);
+
+        Path directory = Paths.get(ConfigReader.getReportDirectory());
+        String summary = summarize(byCommands, repeated);
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("roundtrips.json"), StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(report));
+            }
+            Files.write(directory.resolve("roundtrips-summary.txt"), summary.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the round-trip report to " + directory, e);
+        }
+    }
+
+    private static String summarize(List<StepStats> byCommands, List<Map<String, Object>> repeated) {
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT, "Steps with the most WebDriver commands:%n"));
+        byCommands.stream().limit(SUMMARY_ROWS).forEach(stats -> out.append(String.format(Locale.ROOT,
+                "  %6.1f per run  %s (%s)%n", (double) stats.commands / stats.runs, stats.text, stats.location)));
+        out.append(String.format(Locale.ROOT, "Locators looked up repeatedly within a step:%n"));
+        if (repeated.isEmpty()) {
+            out.append(String.format(Locale.ROOT, "  none%n"));
+        }
+        repeated.stream().limit(SUMMARY_ROWS).forEach(use -> out.append(String.format(Locale.ROOT,
+                "  %4d redundant find(s) by %d action(s)  %s in %s, step %s (%s)%n",
+                use.get("redundantFinds"), use.get("actions"), use.get("locator"), use.get("page"),
+                use.get("step"), use.get("location"))));
+        return out.toString();
+    }
+
+    /**
+     * The round trips of one step, over every time it ran.
+     */
+    private static final class StepStats {
+        private final String text;
+        private final String location;
+        private final Map<String, RepeatedUse> repeated = new LinkedHashMap<>();
+        private long runs;
+        private long commands;
+
+        private StepStats(String text, String location) {
+            this.text = text;
+            this.location = location;
+        }
+
+        private synchronized void add(RoundTripTracer.StepTrace trace) {
+            runs++;
+            commands += trace.getCommands();
+            for (RoundTripTracer.LocatorUse use : trace.getRepeatedFinds()) {
+                repeated.computeIfAbsent(use.getLocator() + " " + use.getPage(), key -> new RepeatedUse(use))
+                        .add(use);
+            }
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("step", text);
+            json.put("location", location);
+            json.put("runs", runs);
+            json.put("commands", commands);
+            return json;
+        }
+    }
+
+    /**
+     * A locator a step looked up more than once, over every time the step ran.
+     */
+    private static final class RepeatedUse {
+        private final String locator;
+        private final String page;
+        private long runs;
+        private long finds;
+        private long actions;
+        private long maxFinds;
+
+        private RepeatedUse(RoundTripTracer.LocatorUse use) {
+            this.locator = use.getLocator();
+            this.page = use.getPage();
+        }
+
+        private void add(RoundTripTracer.LocatorUse use) {
+            runs++;
+            finds += use.getFinds();
+            actions += use.getActions();
+            maxFinds = Math.max(maxFinds, use.getFinds());
+        }
+
+        private Map<String, Object> toJson(StepStats step) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("step", step.text);
+            json.put("location", step.location);
+            json.put("locator", locator);
+            json.put("page", page);
+            json.put("runs", runs);
+            json.put("finds", finds);
+            json.put("redundantFinds", finds - runs);
+            json.put("actions", actions);
+            json.put("maxFindsPerRun", maxFinds);
+            return json;
+        }
+    }
+}
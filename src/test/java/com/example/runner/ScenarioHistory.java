@@ -0,0 +1,140 @@
+package com.example.runner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Scenario durations from previous runs, used to schedule the longest scenarios first.
+ * Durations are kept per scenario location as a moving average, so one slow run does not
+ * reorder the whole suite.
+ */
+public class ScenarioHistory {
+    private static final Json JSON = new Json();
+    // Weight of the latest run in the moving average.
+    private static final double SMOOTHING = 0.5;
+    private static final URI WORKING_DIR = Paths.get("").toAbsolutePath().toUri();
+
+    private final Path file;
+    private final Map<String, Long> durations = new TreeMap<>();
+
+    private ScenarioHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return a history without durations and without a file, for planning without history
+     */
+    static ScenarioHistory empty() {
+        return new ScenarioHistory(null);
+    }
+
+    /**
+     * Loads the history file, or starts an empty history if there is none yet.
+     *
+     * @param file the history file
+     * @return the history
+     * @throws IllegalStateException if the file exists but cannot be read, since the shard plan
+     *         and the order of the run depend on it
+     */
+    public static ScenarioHistory load(Path file) {
+        ScenarioHistory history = new ScenarioHistory(file);
+        if (!Files.exists(file)) {
+            return history;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, Object> raw = JSON.toType(reader, Json.MAP_TYPE);
+            raw.forEach((key, value) -> history.durations.put(key, ((Number) value).longValue()));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Unreadable scenario history " + file.toAbsolutePath()
+                    + "; repair or delete it", e);
+        }
+        return history;
+    }
+
+    /**
+     * Folds the durations of a run into the history file. Shards running on the same machine share
+     * the file, so the update holds a file lock.
+     *
+     * @param file the history file
+     * @param durations the duration of each scenario in milliseconds, by key
+     */
+    @SuppressWarnings("try")
+    public static void merge(Path file, Map<String, Long> durations) {
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                ScenarioHistory history = load(file);
+                durations.forEach(history::update);
+                history.save();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to update scenario history " + file, e);
+        }
+    }
+
+    /**
+     * Builds the key of a scenario. Feature file URIs are made relative to the working directory,
+     * so the history stays valid when the project is checked out elsewhere.
+     *
+     * @param uri the feature file URI
+     * @param line the line of the scenario, or of the example row for a scenario outline
+     * @return the key
+     */
+    public static String key(URI uri, int line) {
+        return WORKING_DIR.relativize(uri) + ":" + line;
+    }
+
+    /**
+     * @return the expected duration of the scenario in milliseconds, or -1 if it has never run
+     */
+    public long getMillis(String key) {
+        return durations.getOrDefault(key, -1L);
+    }
+
+    /**
+     * Folds the duration of the latest run into the history.
+     */
+    public void update(String key, long millis) {
+        Long previous = durations.get(key);
+        durations.put(key, previous == null
+                ? millis
+                : Math.round(SMOOTHING * millis + (1 - SMOOTHING) * previous));
+    }
+
+    public int size() {
+        return durations.size();
+    }
+
+    /**
+     * Writes the history back to its file.
+     */
+    public void save() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(durations));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write scenario history " + file, e);
+        }
+    }
+}
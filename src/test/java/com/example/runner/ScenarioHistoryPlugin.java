@@ -0,0 +1,44 @@
+package com.example.runner;
+
+import com.example.config.ConfigReader;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestRunFinished;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long each scenario took and merges the durations into the {@link ScenarioHistory}
+ * file when the run finishes, for {@link CucumberRunner} to schedule the next run.
+ */
+public class ScenarioHistoryPlugin implements ConcurrentEventListener {
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestCaseFinished.class, this::onTestCaseFinished);
+        publisher.registerHandlerFor(TestRunFinished.class, event -> save());
+    }
+
+    private void onTestCaseFinished(TestCaseFinished event) {
+        Status status = event.getResult().getStatus();
+        // Scenarios that did not really run say nothing about how long they take.
+        if (status == Status.SKIPPED || status == Status.UNDEFINED || status == Status.PENDING) {
+            return;
+        }
+        TestCase testCase = event.getTestCase();
+        durations.put(ScenarioHistory.key(testCase.getUri(), testCase.getLocation().getLine()),
+                event.getResult().getDuration().toMillis());
+    }
+
+    private void save() {
+        if (durations.isEmpty()) {
+            return;
+        }
+        ScenarioHistory.merge(Paths.get(ConfigReader.getScenarioHistoryFile()), durations);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.runner;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs scenarios in separate lanes, each with its own concurrency: a small lane of platform
+ * threads for browser-bound {@code @ui} scenarios, and a wide lane for {@code @api} scenarios,
+ * which mostly wait on I/O. The API lane uses virtual threads where the JDK has them.
+ * <p>
+ * Lane threads live for the whole run, so Cucumber's per-thread runner and the thread-bound
+ * test context are reused across the scenarios of a lane. With a {@link ConcurrencyGovernor},
+ * the UI lane has a thread for the governor's maximum and each UI scenario waits for the
+ * governor's current limit before it starts.
+ */
+public class ScenarioLanes {
+    public enum Lane {
+        UI, API;
+
+        /**
+         * @param tags the tags of a scenario, including the inherited feature tags
+         * @return the lane the scenario runs in; untagged scenarios go to the API lane,
+         *         where they fail fast in {@code Hooks}
+         */
+        public static Lane of(List<String> tags) {
+            return tags.contains("@ui") ? UI : API;
+        }
+    }
+
+    private final ExecutorService uiLane;
+    private final ExecutorService apiLane;
+    private final ConcurrencyGovernor uiGovernor;
+
+    /**
+     * @param uiThreads the number of UI scenarios that run at once, usually the number of browsers
+     * @param apiThreads the number of API scenarios that run at once
+     * @param virtualApiThreads whether the API lane should use virtual threads when available
+     */
+    public ScenarioLanes(int uiThreads, int apiThreads, boolean virtualApiThreads) {
+        this(uiThreads, apiThreads, virtualApiThreads, null);
+    }
+
+    /**
+     * @param uiThreads the number of UI scenarios that run at once, usually the number of browsers
+     * @param apiThreads the number of API scenarios that run at once
+     * @param virtualApiThreads whether the API lane should use virtual threads when available
+     * @param uiGovernor limits how many of the UI threads run scenarios at once, or null for all of them
+     */
+    public ScenarioLanes(int uiThreads, int apiThreads, boolean virtualApiThreads, ConcurrencyGovernor uiGovernor) {
+        this.uiGovernor = uiGovernor;
+        this.uiLane = Executors.newFixedThreadPool(uiThreads, platformThreads("ui-lane-"));
+        ThreadFactory apiFactory = virtualApiThreads ? virtualThreads("api-lane-") : null;
+        this.apiLane = Executors.newFixedThreadPool(apiThreads,
+                apiFactory != null ? apiFactory : platformThreads("api-lane-"));
+    }
+
+    /**
+     * Queues a task in a lane. Tasks of the same lane start in submission order.
+     *
+     * @param lane the lane
+     * @param task the task
+     * @return completes when the task has run, exceptionally if it threw
+     */
+    public CompletableFuture<Void> submit(Lane lane, Runnable task) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ConcurrencyGovernor governor = lane == Lane.UI ? uiGovernor : null;
+        (lane == Lane.UI ? uiLane : apiLane).execute(() -> {
+            try {
+                if (governor != null) {
+                    governor.acquire();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            }
+            try {
+                task.run();
+                result.complete(null);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                if (governor != null) {
+                    governor.release();
+                }
+            }
+        });
+        return result;
+    }
+
+    public void shutdown() {
+        uiLane.shutdown();
+        apiLane.shutdown();
+    }
+
+    private static ThreadFactory platformThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Builds {@code Thread.ofVirtual().name(prefix, 1).factory()} reflectively, as the project
+     * compiles for Java 11.
+     *
+     * @return the factory, or null if the JDK has no virtual threads
+     */
+    private static ThreadFactory virtualThreads(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.runner;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.example.utils.ExtentReportManager;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Combines the reports of all shards into the locations a single, unsharded run writes to:
+ * the Cucumber JSON report, the Extent adapter's Spark report and the {@code extent-report.html}.
+ * Nothing is merged unless every shard of the plan reported and every scenario of the suite ran
+ * on exactly one of them.
+ * Run it once every shard has finished, with the shard directories collected under one root:
+ * <pre>
+ * mvn org.codehaus.mojo:exec-maven-plugin:3.1.0:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.runner.ShardReportMerger [-Dexec.args=test-output/shards]
+ * </pre>
+ */
+public class ShardReportMerger {
+    private static final Json JSON = new Json();
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : "test-output/shards");
+        List<Path> shards = listShards(root);
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("No shard reports found in " + root.toAbsolutePath());
+        }
+
+        verifyCoverage(shards);
+
+        List<Path> cucumberReports = new ArrayList<>();
+        List<Path> adapterArchives = new ArrayList<>();
+        List<Path> managerArchives = new ArrayList<>();
+        List<Path> managerLogs = new ArrayList<>();
+        for (Path shard : shards) {
+            existing(shard.resolve("CucumberTestReport.json")).ifPresent(cucumberReports::add);
+            newest(shard, "extent.json").ifPresent(adapterArchives::add);
+            existing(shard.resolve("extent-report.json")).ifPresent(managerArchives::add);
+            existing(shard.resolve("extent-report.jsonl")).ifPresent(managerLogs::add);
+        }
+
+        mergeCucumberReports(cucumberReports, Paths.get("target/cucumber-reports/CucumberTestReport.json"));
+        mergeExtentArchives(adapterArchives, Paths.get("test-output/SparkReport/Spark.html"));
+        if (!managerLogs.isEmpty()) {
+            ExtentReportManager.renderReport(managerLogs, Paths.get("test-output/extent-report.html"));
+        } else {
+            mergeExtentArchives(managerArchives, Paths.get("test-output/extent-report.html"));
+        }
+        System.out.println("Merged the reports of " + shards.size() + " shard(s) from " + root);
+    }
+
+    /**
+     * Checks the shards against the plans they wrote: all shards planned the same suite with the
+     * same shard count, each shard reported once, and the scenarios in their Cucumber reports are
+     * exactly the suite, none of them twice.
+     *
+     * @throws IllegalStateException describing what is missing, duplicated or inconsistent
+     */
+    @SuppressWarnings("unchecked")
+    static void verifyCoverage(List<Path> shards) throws IOException {
+        Set<String> suite = null;
+        int count = -1;
+        Set<Integer> indexes = new TreeSet<>();
+        Set<String> ran = new TreeSet<>();
+        Set<String> duplicated = new TreeSet<>();
+        for (Path shard : shards) {
+            Path planFile = shard.resolve(Shards.PLAN_FILE);
+            if (!Files.isRegularFile(planFile)) {
+                throw new IllegalStateException("Shard " + shard + " has no " + Shards.PLAN_FILE);
+            }
+            Map<String, Object> plan;
+            try (Reader reader = Files.newBufferedReader(planFile, StandardCharsets.UTF_8)) {
+                plan = JSON.toType(reader, Json.MAP_TYPE);
+            }
+            Set<String> planned = new TreeSet<>((List<String>) plan.get("scenarios"));
+            int planCount = ((Number) plan.get("count")).intValue();
+            if (suite == null) {
+                suite = planned;
+                count = planCount;
+            } else if (!suite.equals(planned) || count != planCount) {
+                throw new IllegalStateException("Shard " + shard + " planned a different suite or shard count"
+                        + " than the others; all shards must run the same features with the same shard.count");
+            }
+            if (!indexes.add(((Number) plan.get("index")).intValue())) {
+                throw new IllegalStateException("Shard index " + plan.get("index") + " reported twice");
+            }
+            Path report = shard.resolve("CucumberTestReport.json");
+            if (!Files.isRegularFile(report)) {
+                throw new IllegalStateException("Shard " + shard + " has no CucumberTestReport.json");
+            }
+            for (String key : scenarioKeys(report)) {
+                if (!ran.add(key)) {
+                    duplicated.add(key);
+                }
+            }
+        }
+        if (indexes.size() != count) {
+            throw new IllegalStateException("Expected " + count + " shards, found reports of shards " + indexes);
+        }
+        Set<String> missing = new TreeSet<>(suite);
+        missing.removeAll(ran);
+        Set<String> unexpected = new TreeSet<>(ran);
+        unexpected.removeAll(suite);
+        if (!missing.isEmpty() || !duplicated.isEmpty() || !unexpected.isEmpty()) {
+            throw new IllegalStateException("The shards did not run every scenario exactly once: missing " + missing
+                    + ", run more than once " + duplicated + ", not in the plan " + unexpected);
+        }
+    }
+
+    /**
+     * @return the {@link ScenarioHistory#key keys} of the scenarios in a Cucumber JSON report
+     */
+    private static List<String> scenarioKeys(Path report) throws IOException {
+        List<Map<String, Object>> features;
+        try (Reader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+            features = JSON.toType(reader, Json.LIST_OF_MAPS_TYPE);
+        }
+        List<String> keys = new ArrayList<>();
+        for (Map<String, Object> feature : features) {
+            URI uri = URI.create((String) feature.get("uri"));
+            for (Object element : elements(feature)) {
+                Map<?, ?> scenario = (Map<?, ?>) element;
+                if (!"scenario".equals(scenario.get("type"))) {
+                    continue;
+                }
+                int line = ((Number) scenario.get("line")).intValue();
+                // The report holds paths relative to the working directory, such as file:src/test/...
+                keys.add(uri.isOpaque() ? uri.getSchemeSpecificPart() + ":" + line : ScenarioHistory.key(uri, line));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Concatenates Cucumber JSON reports, joining the scenarios of features that were split
+     * across shards back into one feature.
+     */
+    static void mergeCucumberReports(List<Path> reports, Path target) throws IOException {
+        Map<Object, Map<String, Object>> features = new LinkedHashMap<>();
+        for (Path report : reports) {
+            List<Map<String, Object>> parsed;
+            try (Reader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+                parsed = JSON.toType(reader, Json.LIST_OF_MAPS_TYPE);
+            }
+            for (Map<String, Object> feature : parsed) {
+                Map<String, Object> merged = features.get(feature.get("uri"));
+                if (merged == null) {
+                    merged = new LinkedHashMap<>(feature);
+                    merged.put("elements", new ArrayList<>(elements(feature)));
+                    features.put(feature.get("uri"), merged);
+                } else {
+                    elements(merged).addAll(elements(feature));
+                }
+            }
+        }
+        Files.createDirectories(target.getParent());
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write(JSON.toJson(new ArrayList<>(features.values())));
+        }
+    }
+
+    /**
+     * Rebuilds one Spark report from the Extent JSON archives written by the shards.
+     */
+    static void mergeExtentArchives(List<Path> archives, Path target) throws IOException {
+        if (archives.isEmpty()) {
+            return;
+        }
+        ExtentReports extent = new ExtentReports();
+        ExtentSparkReporter spark = new ExtentSparkReporter(target.toString());
+        Path config = Paths.get("src/test/resources/extent-config.xml");
+        if (Files.exists(config)) {
+            spark.loadXMLConfig(config.toFile());
+        }
+        extent.attachReporter(spark);
+        for (Path archive : archives) {
+            extent.createDomainFromJsonArchive(archive.toFile());
+        }
+        extent.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> elements(Map<String, Object> feature) {
+        Object elements = feature.get("elements");
+        return elements == null ? new ArrayList<>() : (List<Object>) elements;
+    }
+
+    private static List<Path> listShards(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> children = Files.list(root)) {
+            return children
+                    .filter(path -> Files.isDirectory(path) && path.getFileName().toString().matches("shard-\\d+"))
+                    .sorted(Comparator.comparingInt(path -> Integer.parseInt(path.getFileName().toString().substring(6))))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Optional<Path> existing(Path file) {
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    // The Extent adapter puts each run in a new timestamped folder; the latest one belongs to this run.
+    private static Optional<Path> newest(Path directory, String fileName) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().equals(fileName))
+                    .max(Comparator.comparingLong(path -> path.toFile().lastModified()));
+        }
+    }
+}
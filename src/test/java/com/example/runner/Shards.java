@@ -0,0 +1,141 @@
+package com.example.runner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Splits the suite across shards, so several JVMs or CI agents can each run a part of it.
+ * <p>
+ * The split depends only on the scenario keys and a history that no shard writes to, never on
+ * the order the scenarios were found in, so every shard computes the same plan. Scenarios are dealt
+ * out longest first, each to the shard with the least expected work, which balances the shards by
+ * duration rather than by count; without a history they are dealt out in key order. Each shard
+ * writes the plan it ran next to its reports, for {@link ShardReportMerger} to check that every
+ * scenario ran exactly once.
+ */
+public final class Shards {
+
+    static final String PLAN_FILE = "shard-plan.json";
+    private static final Json JSON = new Json();
+
+    private Shards() {
+    }
+
+    /**
+     * Loads the history the plan is balanced by: the pinned {@code shard.history.file}, or an
+     * empty history when none is configured. The run's own history file is not used, because each
+     * shard updates it and would plan against a different one.
+     *
+     * @param file the pinned history file, or empty
+     * @return the history
+     * @throws IllegalStateException if a configured file does not exist or cannot be read
+     */
+    static ScenarioHistory planningHistory(String file) {
+        if (file.isEmpty()) {
+            return ScenarioHistory.empty();
+        }
+        Path path = Paths.get(file);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalStateException("shard.history.file " + path.toAbsolutePath() + " does not exist");
+        }
+        return ScenarioHistory.load(path);
+    }
+
+    /**
+     * Plans which shard runs each scenario.
+     *
+     * @param keys the {@link ScenarioHistory#key scenario keys} of the whole suite
+     * @param history the durations of previous runs, the same for every shard
+     * @param count the number of shards
+     * @return the shard index of every key
+     */
+    public static Map<String, Integer> assign(List<String> keys, ScenarioHistory history, int count) {
+        // Scenarios that have never run are assumed to take as long as the average one.
+        long known = 0;
+        long total = 0;
+        for (String key : keys) {
+            long millis = history.getMillis(key);
+            if (millis >= 0) {
+                known++;
+                total += millis;
+            }
+        }
+        long fallback = known == 0 ? 1 : Math.max(1, total / known);
+        Map<String, Long> estimates = new HashMap<>();
+        keys.forEach(key -> {
+            long millis = history.getMillis(key);
+            estimates.put(key, millis < 0 ? fallback : millis);
+        });
+
+        List<String> ordered = new ArrayList<>(estimates.keySet());
+        ordered.sort(Comparator.comparing((String key) -> estimates.get(key), Comparator.reverseOrder())
+                .thenComparing(Comparator.naturalOrder()));
+
+        long[] load = new long[count];
+        Map<String, Integer> plan = new HashMap<>();
+        for (String key : ordered) {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (load[shard] < load[lightest]) {
+                    lightest = shard;
+                }
+            }
+            load[lightest] += estimates.get(key);
+            plan.put(key, lightest);
+        }
+        return plan;
+    }
+
+    /**
+     * Writes the plan this shard ran with into its report directory.
+     *
+     * @param reportDirectory the shard's report directory
+     * @param keys the keys of the whole suite
+     * @param index this shard's index
+     * @param count the number of shards
+     */
+    static void writePlan(String reportDirectory, List<String> keys, int index, int count) {
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("index", index);
+        plan.put("count", count);
+        plan.put("scenarios", new TreeSet<>(keys));
+        Path file = Paths.get(reportDirectory, PLAN_FILE);
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(plan));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write shard plan " + file, e);
+        }
+    }
+
+    /**
+     * Points this JVM's Cucumber JSON and Extent output into the shard's report directory, so
+     * shards running on one machine do not overwrite each other. Must run before Cucumber starts.
+     *
+     * @param reportDirectory the shard's report directory
+     */
+    static void configureReports(String reportDirectory) {
+        String json = "json:" + reportDirectory + "/CucumberTestReport.json";
+        String plugins = System.getProperty("cucumber.plugin");
+        System.setProperty("cucumber.plugin", plugins == null || plugins.isEmpty() ? json : plugins + "," + json);
+        // The Extent adapter reads these over extent.properties; the JSON archive is what gets merged.
+        System.setProperty("basefolder.name", reportDirectory + "/SparkReport");
+        System.setProperty("extent.reporter.json.start", "true");
+        System.setProperty("extent.reporter.json.out", "extent.json");
+    }
+}
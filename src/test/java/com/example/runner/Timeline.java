@@ -0,0 +1,89 @@
+package com.example.runner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The spans of a run, collected for the {@link TimelinePlugin}. Cucumber reports scenarios, hooks
+ * and steps itself; the framework adds the parts it cannot see, such as driver startup or
+ * screenshot capture, with {@link #start}. Nothing is recorded unless the plugin is active.
+ */
+public final class Timeline {
+    private static final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private static volatile boolean recording;
+
+    private Timeline() {
+    }
+
+    /**
+     * Starts a span on the current thread.
+     *
+     * @param category the kind of work, e.g. {@code driver}
+     * @param name what is being done
+     * @return the span; close it when the work is done
+     */
+    public static Span start(String category, String name) {
+        return recording ? new Span(category, name, Instant.now(), Thread.currentThread()) : Span.NONE;
+    }
+
+    static void setRecording(boolean enabled) {
+        recording = enabled;
+    }
+
+    static void add(Span span) {
+        spans.add(span);
+    }
+
+    /**
+     * @return the spans recorded so far, which are removed from the timeline
+     */
+    static List<Span> drain() {
+        List<Span> drained = new ArrayList<>();
+        for (Span span = spans.poll(); span != null; span = spans.poll()) {
+            drained.add(span);
+        }
+        return drained;
+    }
+
+    /**
+     * A piece of work done by one thread.
+     */
+    public static final class Span implements AutoCloseable {
+        static final Span NONE = new Span("", "", Instant.EPOCH, null);
+
+        final String category;
+        final String name;
+        final Instant start;
+        final long threadId;
+        final String threadName;
+        Instant end;
+
+        Span(String category, String name, Instant start, Thread thread) {
+            this.category = category;
+            this.name = name;
+            this.start = start;
+            this.threadId = thread == null ? 0 : thread.getId();
+            this.threadName = thread == null ? "" : thread.getName();
+        }
+
+        Span(String category, String name, Instant start, Instant end, long threadId, String threadName) {
+            this.category = category;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        @Override
+        public void close() {
+            if (this != NONE) {
+                end = Instant.now();
+                add(this);
+            }
+        }
+    }
+}
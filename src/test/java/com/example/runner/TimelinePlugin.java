@@ -0,0 +1,229 @@
+package com.example.runner;
+
+import com.example.config.ConfigReader;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestRunStarted;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Records where each worker thread spent the run: scenarios, hooks and steps as Cucumber reports
+ * them, the framework's own {@link Timeline} spans (driver startup, screenshots, teardown), and
+ * the idle time between scenarios. When the run finishes it writes {@code timeline.json} in the
+ * Chrome trace-event format, which opens in chrome://tracing or Perfetto, and a utilization
+ * summary to {@code timeline-summary.txt}.
+ */
+public class TimelinePlugin implements ConcurrentEventListener {
+    private static final Json JSON = new Json();
+
+    // Started scenarios and steps, until they finish; keyed by test case and step id.
+    private final Map<UUID, Timeline.Span> openCases = new ConcurrentHashMap<>();
+    private final Map<UUID, Timeline.Span> openSteps = new ConcurrentHashMap<>();
+    private Instant runStarted;
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!ConfigReader.isTimelineEnabled()) {
+            return;
+        }
+        publisher.registerHandlerFor(TestRunStarted.class, this::onRunStarted);
+        publisher.registerHandlerFor(TestCaseStarted.class, event -> openCases.put(event.getTestCase().getId(),
+                new Timeline.Span("scenario", event.getTestCase().getName(), event.getInstant(), Thread.currentThread())));
+        publisher.registerHandlerFor(TestCaseFinished.class, event ->
+                finish(openCases.remove(event.getTestCase().getId()), event.getInstant()));
+        publisher.registerHandlerFor(TestStepStarted.class, event -> openSteps.put(event.getTestStep().getId(),
+                new Timeline.Span(category(event.getTestStep()), name(event.getTestStep()), event.getInstant(),
+                        Thread.currentThread())));
+        publisher.registerHandlerFor(TestStepFinished.class, event ->
+                finish(openSteps.remove(event.getTestStep().getId()), event.getInstant()));
+        publisher.registerHandlerFor(TestRunFinished.class, this::onRunFinished);
+    }
+
+    private void onRunStarted(TestRunStarted event) {
+        runStarted = event.getInstant();
+        Timeline.setRecording(true);
+    }
+
+    private static void finish(Timeline.Span span, Instant end) {
+        if (span != null) {
+            span.end = end;
+            Timeline.add(span);
+        }
+    }
+
+    private static String category(TestStep step) {
+        return step instanceof PickleStepTestStep ? "step" : "hook";
+    }
+
+    private static String name(TestStep step) {
+        if (step instanceof PickleStepTestStep) {
+            PickleStepTestStep pickleStep = (PickleStepTestStep) step;
+            return pickleStep.getStep().getKeyword() + pickleStep.getStep().getText();
+        }
+        // e.g. com.example.stepdefs.Hooks.tearDown(io.cucumber.java.Scenario) -> Hooks.tearDown
+        String location = step.getCodeLocation();
+        int arguments = location.indexOf('(');
+        String method = arguments < 0 ? location : location.substring(0, arguments);
+        int type = method.lastIndexOf('.', method.lastIndexOf('.') - 1);
+        return ((HookTestStep) step).getHookType() + " " + method.substring(type + 1);
+    }
+
+    private void onRunFinished(TestRunFinished event) {
+        Timeline.setRecording(false);
+        if (runStarted == null) {
+            return;
+        }
+        Instant runFinished = event.getInstant();
+        List<Timeline.Span> spans = Timeline.drain();
+        spans.addAll(idleSpans(spans, runStarted, runFinished));
+        spans.sort(Comparator.comparing((Timeline.Span span) -> span.start)
+                .thenComparing(span -> span.end, Comparator.reverseOrder()));
+
+        Path directory = Paths.get(ConfigReader.getReportDirectory());
+        String summary = summarize(spans, Duration.between(runStarted, runFinished));
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("timeline.json"), StandardCharsets.UTF_8)) {
+                writer.write(JSON.toJson(traceEvents(spans, runStarted)));
+            }
+            Files.write(directory.resolve("timeline-summary.txt"), summary.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the timeline to " + directory, e);
+        }
+    }
+
+    /**
+     * The gaps in which a worker had no scenario to run: before its first scenario, between
+     * scenarios and after its last one.
+     */
+    private static List<Timeline.Span> idleSpans(List<Timeline.Span> spans, Instant runStarted, Instant runFinished) {
+        Map<Long, List<Timeline.Span>> scenariosByWorker = new TreeMap<>();
+        for (Timeline.Span span : spans) {
+            if (span.category.equals("scenario")) {
+                scenariosByWorker.computeIfAbsent(span.threadId, id -> new ArrayList<>()).add(span);
+            }
+        }
+        List<Timeline.Span> idle = new ArrayList<>();
+        scenariosByWorker.forEach((threadId, scenarios) -> {
+            scenarios.sort(Comparator.comparing(span -> span.start));
+            String threadName = scenarios.get(0).threadName;
+            Instant free = runStarted;
+            for (Timeline.Span scenario : scenarios) {
+                if (scenario.start.isAfter(free)) {
+                    idle.add(new Timeline.Span("idle", "idle", free, scenario.start, threadId, threadName));
+                }
+                free = scenario.end;
+            }
+            if (runFinished.isAfter(free)) {
+                idle.add(new Timeline.Span("idle", "idle", free, runFinished, threadId, threadName));
+            }
+        });
+        return idle;
+    }
+
+    private static Map<String, Object> traceEvents(List<Timeline.Span> spans, Instant origin) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        Map<Long, String> threads = new TreeMap<>();
+        for (Timeline.Span span : spans) {
+            threads.put(span.threadId, span.threadName);
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.name);
+            event.put("cat", span.category);
+            event.put("ph", "X");
+            event.put("ts", micros(Duration.between(origin, span.start)));
+            event.put("dur", micros(Duration.between(span.start, span.end)));
+            event.put("pid", 1);
+            event.put("tid", span.threadId);
+            events.add(event);
+        }
+        threads.forEach((threadId, threadName) -> {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", "thread_name");
+            event.put("ph", "M");
+            event.put("pid", 1);
+            event.put("tid", threadId);
+            event.put("args", Map.of("name", threadName));
+            events.add(event);
+        });
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+        return trace;
+    }
+
+    private static long micros(Duration duration) {
+        return duration.toNanos() / 1000;
+    }
+
+    /**
+     * Busy and idle time per worker, and the time spent in each kind of work across all workers.
+     * Driver startup happens inside the first UI step and screenshots and driver release inside
+     * the after hooks, so those categories are part of the step and hook totals.
+     */
+    private static String summarize(List<Timeline.Span> spans, Duration wall) {
+        Map<String, Duration> busy = new TreeMap<>();
+        Map<String, Duration> idle = new TreeMap<>();
+        Map<String, Integer> scenarios = new TreeMap<>();
+        Map<String, Duration> categories = new LinkedHashMap<>();
+        for (String category : List.of("scenario", "hook", "step", "driver", "screenshot", "teardown", "idle")) {
+            categories.put(category, Duration.ZERO);
+        }
+        for (Timeline.Span span : spans) {
+            Duration length = Duration.between(span.start, span.end);
+            categories.merge(span.category, length, Duration::plus);
+            if (span.category.equals("scenario")) {
+                busy.merge(span.threadName, length, Duration::plus);
+                scenarios.merge(span.threadName, 1, Integer::sum);
+            } else if (span.category.equals("idle")) {
+                idle.merge(span.threadName, length, Duration::plus);
+            }
+        }
+        Duration totalBusy = busy.values().stream().reduce(Duration.ZERO, Duration::plus);
+        Duration capacity = wall.multipliedBy(Math.max(1, busy.size()));
+
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Timeline: %d worker(s) over %s, %d%% busy%n",
+                busy.size(), seconds(wall), percent(totalBusy, capacity)));
+        busy.forEach((worker, time) -> out.append(String.format(Locale.ROOT,
+                "  %-24s %3d scenario(s)  busy %9s  idle %9s%n",
+                worker, scenarios.get(worker), seconds(time), seconds(idle.getOrDefault(worker, Duration.ZERO)))));
+        out.append(String.format(Locale.ROOT, "Time across all workers:%n"));
+        categories.forEach((category, time) -> out.append(String.format(Locale.ROOT,
+                "  %-24s %9s  %3d%%%n", category, seconds(time), percent(time, capacity))));
+        return out.toString();
+    }
+
+    private static String seconds(Duration duration) {
+        return String.format(Locale.ROOT, "%.2f s", duration.toMillis() / 1000.0);
+    }
+
+    private static long percent(Duration part, Duration whole) {
+        return whole.isZero() ? 0 : Math.round(100.0 * part.toNanos() / whole.toNanos());
+    }
+}
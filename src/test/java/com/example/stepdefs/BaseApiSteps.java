@@ -0,0 +1,17 @@
+package com.example.stepdefs;
+
+import com.example.enums.TestType;
+import com.example.context.TestContext;
+import com.example.actions.ApiActions;
+
+public class BaseApiSteps {
+    protected final ApiActions api;
+    
+    public BaseApiSteps() {
+        TestContext testContext = Hooks.getTestContext();
+        if (testContext.getTestType() != TestType.API) {
+            throw new IllegalStateException("API Steps cannot be used with non-API tests");
+        }
+        this.api = testContext.getApi();
+    }
+}
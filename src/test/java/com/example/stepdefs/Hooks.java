@@ -1,7 +1,9 @@
 package com.example.stepdefs;
 
 import com.example.context.TestContext;
+import com.example.actions.LocatorTimings;
 import com.example.utils.ExtentReportManager;
+import com.example.utils.ScreenshotWriter;
 import com.example.enums.TestType;
 import io.cucumber.java.Before;
 import io.cucumber.java.After;
@@ -11,13 +13,23 @@ import io.cucumber.java.Scenario;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import com.example.driver.DriverFactory;
+import com.example.driver.NetworkMonitor;
+import com.example.config.ConfigReader;
+import com.example.metrics.CommandMetrics;
+import com.example.runner.ConcurrencyGovernor;
+import com.example.runner.Timeline;
+import com.example.stub.ApiStubServer;
 import com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter;
-import java.util.Base64;
+import com.aventstack.extentreports.service.ExtentService;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Set;
 import java.util.HashSet;
 
 public class Hooks {
     private static final ThreadLocal<TestContext> testContext = new ThreadLocal<>();
+    private static ScreenshotWriter screenshots;
     
     public static TestContext getTestContext() {
         return testContext.get();
@@ -26,11 +38,37 @@ public class Hooks {
     @BeforeAll(order = 1)
     public static void beforeAllTests() {
         ExtentReportManager.initReport();
+        screenshots = new ScreenshotWriter(
+            Paths.get(ExtentService.getScreenshotFolderName()),
+            ConfigReader.getScreenshotWriterThreads(),
+            ConfigReader.getScreenshotMaxPending(),
+            ConfigReader.getScreenshotScale(),
+            ConfigReader.getScreenshotFormat(),
+            ConfigReader.getScreenshotQuality()
+        );
+        // Start one browser per UI scenario that runs at first, while the runner is still scheduling work.
+        DriverFactory.prewarm(ConcurrencyGovernor.initialUiThreads());
+        if (ConfigReader.getApiBaseUrl().isEmpty()) {
+            ApiStubServer.start();
+        }
     }
     
     @AfterAll(order = 1)
     public static void afterAllTests() {
+        screenshots.close();
+        String missingScreenshots = screenshots.failureSummaryHtml();
+        if (missingScreenshots != null) {
+            ExtentReportManager.addSummary("Screenshots that could not be written", missingScreenshots);
+        }
+        CommandMetrics.export(Paths.get(ConfigReader.getReportDirectory()));
+        String metrics = CommandMetrics.summaryHtml(10);
+        if (metrics != null) {
+            ExtentReportManager.addSummary("Command latency", metrics);
+        }
         ExtentReportManager.flushReport();
+        DriverFactory.shutdown();
+        LocatorTimings.save();
+        ApiStubServer.stop();
     }
     
     @Before(order = 1)
@@ -49,7 +87,7 @@ public class Hooks {
             );
         }
         
-        testContext.set(new TestContext(testType));
+        testContext.set(new TestContext(testType, tags));
     }
     
     @Before(order = 2)
@@ -62,35 +100,58 @@ public class Hooks {
     @After(order = 1)
     public void afterScenario(Scenario scenario) {
         TestContext context = testContext.get();
+        NetworkMonitor monitor = context.getNetworkMonitor();
+        if (monitor != null && monitor.getBlockedRequests() > 0) {
+            ExtentCucumberAdapter.addTestStepLog("Network: blocked " + monitor.getBlockedRequests()
+                + " request(s) " + monitor.getBlockedByPattern()
+                + ", saving about " + monitor.getBlockedBytes() / 1024 + " KB"
+                + (monitor.getBlockedOfUnknownSize() > 0
+                    ? " plus " + monitor.getBlockedOfUnknownSize() + " request(s) never loaded unblocked" : "")
+                + ", received " + monitor.getBytesReceived() / 1024 + " KB");
+        }
+        if (monitor != null) {
+            // Bodies are read from the browser, which forgets them once the session is reset.
+            monitor.awaitRecordings(Duration.ofSeconds(10));
+        }
+        if (monitor != null && monitor.getRecordedRequests() + monitor.getRecordFailures()
+                + monitor.getReplayedRequests() + monitor.getReplayMisses() > 0) {
+            ExtentCucumberAdapter.addTestStepLog("HAR: recorded " + monitor.getRecordedRequests()
+                + ", not recordable " + monitor.getRecordFailures()
+                + ", replayed " + monitor.getReplayedRequests()
+                + ", missing from recording " + monitor.getReplayMisses());
+        }
         if (scenario.isFailed()) {
-            if (context.getTestType() == TestType.UI) {
+            if (context.getTestType() == TestType.UI && context.hasDriver()) {
                 captureScreenshot(scenario);
             }
             ExtentReportManager.logFail(scenario.getName() + " failed");
         } else {
             ExtentReportManager.logPass(scenario.getName() + " passed");
         }
+        ExtentReportManager.endTest();
     }
     
+    @SuppressWarnings("try")
     private void captureScreenshot(Scenario scenario) {
-        try {
+        try (Timeline.Span span = Timeline.start("screenshot", "capture screenshot")) {
             final byte[] screenshot = ((TakesScreenshot) DriverFactory.getDriver())
                 .getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "Screenshot");
+            // The file is written in the background; the reports only link to it.
+            Path file = screenshots.submit(scenario.getName(), screenshot);
+            // The Cucumber report lives elsewhere, so it gets an absolute link; Extent a relative one.
+            scenario.attach(file.toAbsolutePath().toUri().toString(), "text/uri-list", "Screenshot");
             ExtentCucumberAdapter.addTestStepScreenCaptureFromPath(
-                "Screenshot on failure",
-                new String(Base64.getEncoder().encode(screenshot))
-            );
+                ExtentService.getScreenshotReportRelatvePath() + file.getFileName(), "Screenshot on failure");
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
     
     @After(order = 0)
-    public void tearDown() {
+    public void tearDown(Scenario scenario) {
         TestContext context = testContext.get();
         if (context != null) {
-            context.tearDown();
+            context.tearDown(scenario.isFailed());
             testContext.remove();
         }
     }
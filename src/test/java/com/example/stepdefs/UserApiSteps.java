@@ -0,0 +1,31 @@
+package com.example.stepdefs;
+
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.When;
+import io.cucumber.java.en.Then;
+import org.testng.Assert;
+import com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter;
+import com.example.actions.ApiResponse;
+
+public class UserApiSteps extends BaseApiSteps {
+    private String userId;
+    private ApiResponse response;
+    
+    @Given("I have a valid user ID")
+    public void iHaveAValidUserId() {
+        userId = "1";
+    }
+    
+    @When("I send GET request to {string}")
+    public void iSendGetRequestTo(String path) {
+        String resolved = path.replace("{id}", userId);
+        ExtentCucumberAdapter.addTestStepLog("GET " + resolved);
+        response = api.get(resolved);
+    }
+    
+    @Then("the response status code should be {int}")
+    public void theResponseStatusCodeShouldBe(int statusCode) {
+        Assert.assertEquals(response.getStatusCode(), statusCode,
+            "Unexpected status code. Body: " + response.getBody());
+    }
+}
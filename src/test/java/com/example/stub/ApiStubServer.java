@@ -0,0 +1,81 @@
+package com.example.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stand-in for the user service, so API scenarios run without any external dependency.
+ * Serves {@code GET /users/{id}} for ids 1 to 10.
+ */
+public class ApiStubServer {
+    private static HttpServer server;
+    private static ExecutorService executor;
+
+    /**
+     * Starts the stub on a free local port, if it is not running yet.
+     */
+    public static synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start the API stub server", e);
+        }
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "api-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/users/", ApiStubServer::handleUser);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * @return the base URL of the running stub
+     */
+    public static synchronized String getBaseUrl() {
+        if (server == null) {
+            throw new IllegalStateException("The API stub server is not running");
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void handleUser(HttpExchange exchange) throws IOException {
+        String id = exchange.getRequestURI().getPath().substring("/users/".length());
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"Method not allowed\"}");
+        } else if (id.matches("[1-9]|10")) {
+            respond(exchange, 200, "{\"id\":" + id + ",\"name\":\"User " + id + "\","
+                    + "\"email\":\"user" + id + "@example.com\",\"active\":true}");
+        } else {
+            respond(exchange, 404, "{\"error\":\"User not found\"}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}